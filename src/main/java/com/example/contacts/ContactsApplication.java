@@ -6,13 +6,16 @@ import com.example.contacts.model.AppUser;
 import com.example.contacts.repository.UserRepository;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 /**
  * Klasa startowa aplikacji
  * - S: odpowiedzialność - uruchomienie aplikacji + inicjalizacja (admin)
+ * - zadania w tle (@Scheduled): kompaktowanie tombstone'ów
  */
 @SpringBootApplication
+@EnableScheduling
 public class ContactsApplication {
 
     public static void main(String[] args) {
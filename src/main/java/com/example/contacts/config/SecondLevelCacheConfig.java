@@ -0,0 +1,53 @@
+package com.example.contacts.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Konfiguracja cache L2 Hibernate (JCache, dostawca Caffeine)
+ * - S: region "contacts" z ograniczonym rozmiarem i TTL, przekazany Hibernate przez HibernatePropertiesCustomizer
+ * - metryki regionu: cache.gets{result=hit|miss}, cache.evictions, cache.removals (tag cache=contacts)
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String CONTACTS_REGION = "contacts";
+
+    // zamykany przez Hibernate razem z SessionFactory (JCacheRegionFactory)
+    @Bean(destroyMethod = "")
+    public CacheManager hibernateCacheManager(@Value("${contacts.cache.l2.size:100000}") long maximumSize,
+                                              @Value("${contacts.cache.l2.ttl:PT10M}") Duration ttl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        CaffeineConfiguration<Object, Object> contacts = new CaffeineConfiguration<>();
+        contacts.setMaximumSize(OptionalLong.of(maximumSize));
+        contacts.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        // statystyki JCache (MXBean) - z nich JCacheMetrics liczy trafienia i wyrzucenia
+        contacts.setStatisticsEnabled(true);
+        if (cacheManager.getCache(CONTACTS_REGION) == null) {
+            cacheManager.createCache(CONTACTS_REGION, contacts);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(CONTACTS_REGION));
+    }
+}
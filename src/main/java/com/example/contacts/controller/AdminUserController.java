@@ -0,0 +1,80 @@
+package com.example.contacts.controller;
+
+import com.example.contacts.dto.RoleChangeRequest;
+import com.example.contacts.service.UserAccountService;
+import com.example.contacts.service.UserProvisioningService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+/**
+ * AdminUserController
+ * - S: endpointy administracyjne dla kont użytkowników (dostęp ROLE_ADMIN w SecurityConfig)
+ * - D: zależy od abstrakcji UserProvisioningService i UserAccountService
+ */
+@RestController
+@RequestMapping("/api/admin/users")
+public class AdminUserController {
+
+    private final UserProvisioningService provisioningService;
+    private final UserAccountService accountService;
+
+    public AdminUserController(UserProvisioningService provisioningService, UserAccountService accountService) {
+        this.provisioningService = provisioningService;
+        this.accountService = accountService;
+    }
+
+    /**
+     * Zbiorcze zakładanie kont: tablica JSON [{username, password, role}], czytana strumieniowo.
+     * Odpowiedź zawiera wynik dla każdego wiersza; pominięte wiersze nie przerywają importu.
+     * Błąd składni -> 400 i żadne konto z tego żądania nie zostaje założone (rollback).
+     */
+    @PostMapping(value = "/bulk/json", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> bulkJson(InputStream body) throws Exception {
+        try {
+            return ResponseEntity.ok(provisioningService.provisionFromJson(body));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    /** Jak wyżej, CSV z nagłówkiem username,password[,role]. */
+    @PostMapping(value = "/bulk/csv", consumes = "text/csv")
+    public ResponseEntity<?> bulkCsv(InputStream body) throws Exception {
+        try {
+            return ResponseEntity.ok(provisioningService.provisionFromCsv(body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid CSV: " + e.getMessage());
+        }
+    }
+
+    /** Zmiana roli; wcześniej wydane tokeny użytkownika przestają być ważne. */
+    @PutMapping(value = "/{username}/role", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> changeRole(@PathVariable String username, @RequestBody RoleChangeRequest request) {
+        try {
+            if (!accountService.changeRole(username, request.getRole())) {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /** Unieważnienie wszystkich wydanych tokenów użytkownika (np. po wycieku albo zmianie hasła). */
+    @PostMapping("/{username}/revoke-tokens")
+    public ResponseEntity<Void> revokeTokens(@PathVariable String username) {
+        if (!accountService.revokeTokens(username)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
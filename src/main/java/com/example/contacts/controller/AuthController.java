@@ -5,11 +5,16 @@ import com.example.contacts.dto.LoginResponse;
 import com.example.contacts.dto.RegisterRequest;
 import com.example.contacts.model.AppUser;
 import com.example.contacts.repository.UserRepository;
+import com.example.contacts.security.AppUserPrincipal;
+import com.example.contacts.security.HashingCapacityExceededException;
 import com.example.contacts.security.JwtService;
+import com.example.contacts.security.PasswordHashingExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -31,15 +36,18 @@ public class AuthController {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final PasswordHashingExecutor hashingExecutor;
 
     public AuthController(AuthenticationManager authManager,
                           UserRepository userRepository,
                           PasswordEncoder passwordEncoder,
-                          JwtService jwtService) {
+                          JwtService jwtService,
+                          PasswordHashingExecutor hashingExecutor) {
         this.authManager = authManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
+        this.hashingExecutor = hashingExecutor;
     }
 
     @PostMapping("/register")
@@ -49,9 +57,16 @@ public class AuthController {
             return ResponseEntity.badRequest().body("Username already exists");
         }
 
+        String encoded;
+        try {
+            encoded = hashingExecutor.call(() -> passwordEncoder.encode(request.getPassword()));
+        } catch (HashingCapacityExceededException e) {
+            return busy(e);
+        }
+
         AppUser user = AppUser.builder()
                 .username(request.getUsername())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(encoded)
                 .role("ROLE_USER")
                 .build();
 
@@ -61,12 +76,21 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest request) {
+        Authentication authentication;
         try {
-            authManager.authenticate(
+            // BCrypt na ograniczonej puli; przy pełnej kolejce 503 zamiast blokowania wątków żądań
+            authentication = hashingExecutor.call(() -> authManager.authenticate(
                     new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-            );
+            ));
         } catch (BadCredentialsException e) {
             return ResponseEntity.status(401).body("Invalid credentials");
+        } catch (HashingCapacityExceededException e) {
+            return busy(e);
+        }
+
+        // principal z uwierzytelnienia ma już rolę i wersję - bez drugiego zapytania o użytkownika
+        if (authentication != null && authentication.getPrincipal() instanceof AppUserPrincipal principal) {
+            return ResponseEntity.ok(new LoginResponse(jwtService.generateToken(principal, principal.getTokenVersion())));
         }
 
         var user = userRepository.findByUsername(request.getUsername()).orElse(null);
@@ -77,7 +101,7 @@ public class AuthController {
         var jwt = jwtService.generateToken(User.withUsername(user.getUsername())
                 .password(user.getPassword())
                 .authorities(() -> user.getRole())
-                .build());
+                .build(), user.getTokenVersion());
 
         return ResponseEntity.ok(new LoginResponse(jwt));
     }
@@ -90,4 +114,10 @@ public class AuthController {
                 "role", auth.getAuthorities().iterator().next().getAuthority()
         ));
     }
-}
\ No newline at end of file
+
+    private static ResponseEntity<String> busy(HashingCapacityExceededException e) {
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body("Too many authentication requests, retry later");
+    }
+}
@@ -1,14 +1,31 @@
 package com.example.contacts.controller;
 
+import com.example.contacts.dto.ContactChanges;
+import com.example.contacts.dto.ContactListQuery;
+import com.example.contacts.dto.ContactPage;
+import com.example.contacts.dto.ContactSort;
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.dto.ExportSnapshot;
 import com.example.contacts.model.Contact;
 import com.example.contacts.service.ContactService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ContactController
@@ -27,18 +44,76 @@ public class ContactController {
         this.contactService = contactService;
     }
 
+    /**
+     * Strona listy: sort = lastName (domyślnie) | firstName | emailDomain, porządek wg polskiej kolacji;
+     * filtry lastName/firstName (prefiks) i domain. Kursor "after" jest ważny tylko dla tego samego sort.
+     */
     @GetMapping
-    public List<Contact> getAll() {
-        return contactService.getAllContacts();
+    public ResponseEntity<ContactPage> getAll(@RequestParam(required = false) String after,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(required = false) String sort,
+                                              @RequestParam(required = false) String lastName,
+                                              @RequestParam(required = false) String firstName,
+                                              @RequestParam(required = false) String domain,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // rewizja czytana przed wierszami: ETag nigdy nie jest nowszy niż zwrócona treść
+        String etag = ContactETags.weak(contactService.getRevision());
+        if (ContactETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        try {
+            ContactListQuery query = ContactListQuery.builder()
+                    .sort(ContactSort.fromParam(sort))
+                    .lastName(lastName)
+                    .firstName(firstName)
+                    .domain(domain)
+                    .build();
+            return ResponseEntity.ok().eTag(etag).body(contactService.getContactsPage(after, limit, query));
+        } catch (IllegalArgumentException e) {
+            // niepoprawny / zmodyfikowany kursor albo nieznany porządek
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // zmiany od tokenu "since" (bez tokenu: pełna lista stronami - reset=true na pierwszej, more=true: wywołać z token)
+    @GetMapping("/changes")
+    public ResponseEntity<ContactChanges> changes(@RequestParam(required = false) String since) {
+        try {
+            return ResponseEntity.ok(contactService.getChanges(since));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // typeahead: q od 1 znaku; limit domyślnie 20, maks. 100
+    @GetMapping("/search")
+    public ResponseEntity<List<ContactSnapshot>> search(@RequestParam String q,
+                                                        @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(contactService.searchContacts(q, limit));
+    }
+
+    // caller ID: id kontaktów z danym numerem (pusta lista = brak); szczegóły przez GET /{id} albo lokalną kopię z /changes
+    @GetMapping("/by-phone/{phone}")
+    public ResponseEntity<List<Long>> byPhone(@PathVariable String phone) {
+        try {
+            return ResponseEntity.ok(contactService.findContactIdsByPhone(phone));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Contact> getOne(@PathVariable Long id) {
+    public ResponseEntity<Contact> getOne(@PathVariable Long id,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Contact contact = contactService.getContact(id);
         if (contact == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(contact);
+        String etag = ContactETags.of(contact.getVersion());
+        if (ContactETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).body(contact);
     }
 
     @PostMapping
@@ -48,17 +123,48 @@ public class ContactController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Contact> update(@PathVariable Long id, @Valid @RequestBody Contact contact) {
-        Contact updated = contactService.updateContact(id, contact);
+    public ResponseEntity<Contact> update(@PathVariable Long id, @Valid @RequestBody Contact contact,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Contact updated;
+        try {
+            updated = contactService.updateContact(id, contact, ContactETags.expectedVersion(ifMatch));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
         if (updated == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(updated);
+        return ResponseEntity.ok().eTag(ContactETags.of(updated.getVersion())).body(updated);
+    }
+
+    // JSON Merge Patch - wysyłane są tylko zmieniane pola
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patch(@PathVariable Long id, @RequestBody Map<String, Object> patch,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version;
+        try {
+            version = contactService.patchContact(id, patch, ContactETags.expectedVersion(ifMatch));
+        } catch (IllegalArgumentException | ConstraintViolationException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        if (version == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // wersja zapisana w bazie; PATCH bez faktycznych zmian jej nie zwiększa
+        return ResponseEntity.noContent().eTag(ContactETags.of(version)).build();
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable Long id) {
-        boolean deleted = contactService.deleteContact(id);
+    public ResponseEntity<Void> delete(@PathVariable Long id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        boolean deleted;
+        try {
+            deleted = contactService.deleteContact(id, ContactETags.expectedVersion(ifMatch));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
         if (deleted) {
             return ResponseEntity.noContent().build();
         } else {
@@ -66,25 +172,127 @@ public class ContactController {
         }
     }
 
+    /**
+     * Eksport z cache gotowych bajtów; klient z Accept-Encoding: gzip dostaje wersję skompresowaną wcześniej.
+     * Widok admina i eksport większy niż limit bufora są pisane strumieniowo prosto do odpowiedzi.
+     */
     @GetMapping(value = "/export/json", produces = MediaType.APPLICATION_JSON_VALUE)
-    public String exportJson() throws Exception {
-        return contactService.exportToJson();
+    public ResponseEntity<?> exportJson(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
+        String etag = ContactETags.weak(contactService.getRevision());
+        if (ContactETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        ExportSnapshot export = contactService.exportJsonSnapshot();
+        if (export == null) {
+            return streamedExport(etag, MediaType.APPLICATION_JSON, contactService::exportToJson);
+        }
+        return exportResponse(export, MediaType.APPLICATION_JSON, acceptEncoding);
     }
 
     @GetMapping(value = "/export/xml", produces = MediaType.APPLICATION_XML_VALUE)
-    public String exportXml() throws Exception {
-        return contactService.exportToXml();
+    public ResponseEntity<?> exportXml(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
+        String etag = ContactETags.weak(contactService.getRevision());
+        if (ContactETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        ExportSnapshot export = contactService.exportXmlSnapshot();
+        if (export == null) {
+            return streamedExport(etag, MediaType.APPLICATION_XML, contactService::exportToXml);
+        }
+        return exportResponse(export, MediaType.APPLICATION_XML, acceptEncoding);
     }
 
-    @PostMapping("/import/json")
-    public ResponseEntity<?> importJson(@Valid @RequestBody List<@Valid Contact> contacts) throws Exception {
-        contactService.replaceContacts(contacts);
+    /**
+     * mode=replace (domyślnie) - usuwa kontakty właściciela i wstawia importowane,
+     * mode=merge - zapisuje tylko różnicę i zwraca ImportResult z licznikami.
+     */
+    @PostMapping(value = "/import/json", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importJson(InputStream body,
+                                        @RequestParam(defaultValue = "replace") String mode) throws Exception {
+        // ciało czytane strumieniowo; walidacja każdego kontaktu odbywa się w serwisie
+        try {
+            if ("merge".equals(mode)) {
+                return ResponseEntity.ok(contactService.mergeContactsFromJson(body));
+            }
+            if (!"replace".equals(mode)) {
+                return ResponseEntity.badRequest().body("Unknown import mode: " + mode);
+            }
+            contactService.replaceContactsFromJson(body);
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body("Invalid JSON: " + e.getOriginalMessage());
+        } catch (ConstraintViolationException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok("Imported JSON");
     }
 
     @PostMapping(value = "/import/xml", consumes = MediaType.APPLICATION_XML_VALUE)
-    public ResponseEntity<?> importXml(@RequestBody String xml) throws Exception {
-        contactService.replaceContactsFromXml(xml);
+    public ResponseEntity<?> importXml(InputStream body,
+                                       @RequestParam(defaultValue = "replace") String mode) throws Exception {
+        try {
+            if ("merge".equals(mode)) {
+                return ResponseEntity.ok(contactService.mergeContactsFromXml(body));
+            }
+            if (!"replace".equals(mode)) {
+                return ResponseEntity.badRequest().body("Unknown import mode: " + mode);
+            }
+            contactService.replaceContactsFromXml(body);
+        } catch (JsonProcessingException | XMLStreamException e) {
+            return ResponseEntity.badRequest().body("Invalid XML: " + e.getMessage());
+        } catch (ConstraintViolationException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok("Imported XML");
     }
-}
\ No newline at end of file
+
+    // 304 bez treści; ETag powtórzony, żeby klient mógł odświeżyć swój wpis
+    // ETag z rewizji eksportu (odczytanej przed danymi), nie nowszy niż treść
+    private static ResponseEntity<byte[]> exportResponse(ExportSnapshot export, MediaType type, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(ContactETags.weak(export.getRevision()))
+                .contentType(type)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(export.getGzip());
+        }
+        return response.body(export.getRaw());
+    }
+
+    // treść pisana strumieniowo prosto do odpowiedzi, bez budowania całego eksportu w pamięci
+    private static ResponseEntity<StreamingResponseBody> streamedExport(String etag, MediaType type, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(type)
+                .body(body);
+    }
+
+    // Accept-Encoding: "gzip" bez q=0; "*" tylko gdy gzip nie jest wymieniony osobno
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            boolean accepted = Arrays.stream(parts).skip(1)
+                    .map(param -> param.replace(" ", ""))
+                    .noneMatch(param -> param.matches("[qQ]=0(\\.0{0,3})?"));
+            if ("gzip".equalsIgnoreCase(name)) {
+                return accepted;
+            }
+            if ("*".equals(name)) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.contacts.controller;
+
+/**
+ * ETag kontaktu = jego @Version; ETag listy/eksportu = rewizja właściciela
+ * - S: formatowanie ETag i interpretacja nagłówków If-Match / If-None-Match
+ */
+final class ContactETags {
+
+    // wersja, która nie pasuje do żadnego kontaktu (niepoprawny If-Match -> 412)
+    static final long NO_MATCH = -1L;
+
+    private ContactETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + (version == null ? 0 : version) + "\"";
+    }
+
+    /**
+     * If-Match (porównanie silne): null gdy brak warunku (brak nagłówka albo "*"),
+     * w przeciwnym razie oczekiwana wersja
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return NO_MATCH;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return NO_MATCH;
+        }
+    }
+
+    // słaby ETag listy/eksportu: ta sama rewizja = te same dane, niekoniecznie identyczne bajty
+    static String weak(long revision) {
+        return "W/\"" + revision + "\"";
+    }
+
+    /**
+     * If-None-Match (porównanie słabe): true gdy któryś z podanych tagów odpowiada etag
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String current = opaque(etag);
+        for (String tag : ifNoneMatch.split(",")) {
+            String t = tag.trim();
+            if ("*".equals(t) || current.equals(opaque(t))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.contacts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+
+ * - S: podsumowanie zbiorczego zakładania kont + wyniki per wiersz (w kolejności wejścia)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkProvisioningReport {
+    private long created;
+    private long skipped;
+    private List<BulkUserResult> results;
+}
@@ -0,0 +1,20 @@
+package com.example.contacts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+
+ * - S: wynik dla jednego wiersza wejścia (row liczone od 1, bez nagłówka CSV)
+ *   status: CREATED, EXISTS (już w bazie), DUPLICATE (powtórzony w wejściu), INVALID
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserResult {
+    private long row;
+    private String username;
+    private String status;
+    private String message;
+}
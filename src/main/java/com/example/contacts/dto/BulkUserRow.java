@@ -0,0 +1,18 @@
+package com.example.contacts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+
+ * - S: jeden użytkownik w zbiorczym zakładaniu kont (role puste = ROLE_USER)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserRow {
+    private String username;
+    private String password;
+    private String role;
+}
@@ -0,0 +1,25 @@
+package com.example.contacts.dto;
+
+import com.example.contacts.model.Contact;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+
+ * - S: odpowiedź synchronizacji przyrostowej - zmienione/nowe kontakty, id usuniętych,
+ *   token do następnego wywołania; reset = true oznacza pierwszą stronę pełnej listy (klient zastępuje
+ *   lokalne dane), more = true - kolejna strona pełnej listy do pobrania z tym tokenem
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContactChanges {
+    private List<Contact> upserts;
+    private List<Long> deletes;
+    private String token;
+    private boolean reset;
+    private boolean more;
+}
@@ -0,0 +1,23 @@
+package com.example.contacts.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+
+ * - S: porządek i filtry listy kontaktów: lastName/firstName = prefiks bez wielkości liter, domain = dokładna domena emaila
+ */
+@Value
+@Builder
+public class ContactListQuery {
+
+    @Builder.Default
+    ContactSort sort = ContactSort.LAST_NAME;
+    String lastName;
+    String firstName;
+    String domain;
+
+    public static ContactListQuery defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.contacts.dto;
+
+import com.example.contacts.model.Contact;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+
+ * - S: jedna strona listy kontaktów + kursor "next" do pobrania kolejnej (null = koniec listy)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContactPage {
+    private List<Contact> items;
+    private String next;
+}
@@ -0,0 +1,20 @@
+package com.example.contacts.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+/**
+
+ * - S: lekka projekcja istniejącego kontaktu (bez encji w persistence context) do porównań przy imporcie
+ * - version: wersja wiersza, z którą indeksy w pamięci porównują spóźnione zdarzenia (poza JSON)
+ */
+@Value
+public class ContactSnapshot {
+    Long id;
+    String firstName;
+    String lastName;
+    String email;
+    String phone;
+    @JsonIgnore
+    Long version;
+}
@@ -0,0 +1,34 @@
+package com.example.contacts.dto;
+
+/**
+
+ * - S: dozwolone porządki listy kontaktów (parametr sort); nazwiska i imiona wg polskiej kolacji
+ */
+public enum ContactSort {
+    LAST_NAME("lastName"),
+    FIRST_NAME("firstName"),
+    EMAIL_DOMAIN("emailDomain");
+
+    private final String param;
+
+    ContactSort(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    /** Brak parametru = LAST_NAME; nieznana wartość -> IllegalArgumentException (400). */
+    public static ContactSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return LAST_NAME;
+        }
+        for (ContactSort sort : values()) {
+            if (sort.param.equals(value)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort: " + value);
+    }
+}
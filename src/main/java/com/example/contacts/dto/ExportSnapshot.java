@@ -0,0 +1,36 @@
+package com.example.contacts.dto;
+
+import lombok.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+
+ * - S: gotowy eksport (JSON albo XML) w dwóch postaciach: surowe bajty i skompresowane gzip
+ * - revision: rewizja właściciela odczytana przed danymi - treść nigdy nie jest od niej starsza
+ */
+@Value
+public class ExportSnapshot {
+    long revision;
+    byte[] raw;
+    byte[] gzip;
+
+    public static ExportSnapshot of(long revision, byte[] raw) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(raw);
+        } catch (IOException e) {
+            // zapis do pamięci nie zgłasza IOException
+            throw new UncheckedIOException(e);
+        }
+        return new ExportSnapshot(revision, raw, compressed.toByteArray());
+    }
+
+    // rozmiar w cache (ExportSnapshotCache)
+    public int size() {
+        return raw.length + gzip.length;
+    }
+}
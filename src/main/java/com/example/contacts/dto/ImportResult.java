@@ -0,0 +1,19 @@
+package com.example.contacts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+
+ * - S: podsumowanie importu w trybie merge (ile wierszy dodano / zmieniono / usunięto / bez zmian)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResult {
+    private long inserted;
+    private long updated;
+    private long deleted;
+    private long unchanged;
+}
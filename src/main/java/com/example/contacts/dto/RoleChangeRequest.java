@@ -0,0 +1,11 @@
+package com.example.contacts.dto;
+
+import lombok.Data;
+
+/**
+ * - S: nowa rola użytkownika (ROLE_USER albo ROLE_ADMIN)
+ */
+@Data
+public class RoleChangeRequest {
+    private String role;
+}
@@ -15,8 +15,10 @@ import lombok.*;
 @Builder
 public class AppUser {
 
+    // sekwencja z pulą 50 (zamiast IDENTITY) - pozwala Hibernate batchować INSERT-y
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
@@ -25,4 +27,7 @@ public class AppUser {
     private String password;
 
     private String role; // np. ROLE_USER, ROLE_ADMIN
+
+    // zapisywana w tokenie JWT; zwiększenie unieważnia wcześniej wydane tokeny
+    private int tokenVersion;
 }
\ No newline at end of file
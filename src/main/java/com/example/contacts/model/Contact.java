@@ -1,27 +1,43 @@
 package com.example.contacts.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 /**
  * Encja Contact
  * - S: model danych kontaktu
  * - Walidacja w adnotacjach zapewnia separację odpowiedzialności (kontroler/serwis nie muszą walidować ręcznie).
+ * - Cache L2 (region "contacts", SecondLevelCacheConfig): odczyt po id bez SQL; UPDATE tylko zmienionych kolumn.
  */
 @Entity
 @Table(name = "contacts")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "contacts")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Contact {
 
+    // sekwencja z pulą 50 (zamiast IDENTITY) - pozwala Hibernate batchować INSERT-y
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contacts_seq")
+    @SequenceGenerator(name = "contacts_seq", sequenceName = "contacts_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Imię jest wymagane")
@@ -43,4 +59,48 @@ public class Contact {
 
     @Column(nullable = false)
     private String ownerUsername;
+
+    // zwiększana przy każdej zmianie; przekazywana klientom w nagłówku ETag, nie w treści
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    // ustawiane przez Hibernate; tylko do odczytu dla klientów, pomijane w eksporcie (null)
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant updatedAt;
+
+    // rewizja właściciela z transakcji, która ostatnio zmieniła wiersz (synchronizacja przyrostowa)
+    @JsonIgnore
+    @Column(nullable = false)
+    private long changeRevision;
+
+    // klucze sortowania liczone przy zapisie (ContactSortKeys) - posortowana strona prosto z indeksu
+    @JsonIgnore
+    @Column(length = 1024)
+    private byte[] lastNameKey;
+
+    @JsonIgnore
+    @Column(length = 1024)
+    private byte[] firstNameKey;
+
+    @JsonIgnore
+    @Column(length = 200)
+    private String emailDomain;
+
+    @PrePersist
+    @PreUpdate
+    void computeSortKeys() {
+        lastNameKey = ContactSortKeys.key(lastName);
+        firstNameKey = ContactSortKeys.key(firstName);
+        emailDomain = ContactSortKeys.emailDomain(email);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.contacts.model;
+
+import java.text.Collator;
+import java.util.Locale;
+
+/**
+ * Klucze sortowania kontaktów zapisywane w bazie
+ * - S: bajty CollationKey polskiego Collatora (Ł po L, Ś po S, Ż po Ź; bez wielkości liter);
+ *   porównanie bajtów bez znaku w bazie daje ten sam porządek co Collator.compare
+ * - klucze zależą od reguł kolacji JDK - po zmianie wersji Javy warto je przeliczyć (jak w migracji V9)
+ */
+public final class ContactSortKeys {
+
+    // RuleBasedCollator.getCollationKey jest synchronizowane: wspólna instancja szeregowałaby wszystkie wątki
+    // (a wątek wirtualny blokowałby przy tym swój wątek nośny) - osobny Collator na wątek; import liczy
+    // tysiące kluczy w jednym wątku, więc koszt utworzenia rozkłada się na wiele wywołań
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(ContactSortKeys::createCollator);
+
+    private ContactSortKeys() {
+    }
+
+    private static Collator createCollator() {
+        Collator collator = Collator.getInstance(Locale.forLanguageTag("pl-PL"));
+        collator.setStrength(Collator.SECONDARY);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        return collator;
+    }
+
+    public static byte[] key(String value) {
+        return COLLATOR.get().getCollationKey(value == null ? "" : value.trim()).toByteArray();
+    }
+
+    /** Domena emaila małymi literami ("" gdy brak @). */
+    public static String emailDomain(String email) {
+        if (email == null) {
+            return "";
+        }
+        int at = email.lastIndexOf('@');
+        return at < 0 ? "" : email.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+    }
+}
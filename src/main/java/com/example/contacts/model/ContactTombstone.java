@@ -0,0 +1,32 @@
+package com.example.contacts.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Encja ContactTombstone
+ * - S: ślad usuniętego kontaktu dla synchronizacji przyrostowej (usuwany po okresie retencji)
+ */
+@Entity
+@Table(name = "contact_tombstones")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContactTombstone {
+
+    @Id
+    private Long contactId;
+
+    @Column(nullable = false)
+    private String ownerUsername;
+
+    // czas usunięcia - tylko do kompaktowania po okresie retencji
+    @Column(nullable = false)
+    private Instant deletedAt;
+
+    // rewizja właściciela z transakcji usuwającej - porównywana z tokenem synchronizacji
+    @Column(nullable = false)
+    private long changeRevision;
+}
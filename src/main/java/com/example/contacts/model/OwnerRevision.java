@@ -0,0 +1,26 @@
+package com.example.contacts.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Encja OwnerRevision
+ * - S: licznik zmian kontaktów jednego właściciela (podstawa ETag listy/eksportu)
+ */
+@Entity
+@Table(name = "owner_revisions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerRevision {
+
+    @Id
+    private String ownerUsername;
+
+    @Column(nullable = false)
+    private long revision;
+
+    // najwyższa rewizja usuniętych już tombstone'ów; token synchronizacji starszy od niej -> reset
+    @Column(nullable = false)
+    private long compactedRevision;
+}
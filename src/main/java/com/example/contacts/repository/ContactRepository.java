@@ -1,16 +1,134 @@
 package com.example.contacts.repository;
 
+import com.example.contacts.dto.ContactSnapshot;
 import com.example.contacts.model.Contact;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repozytorium dla kontaków
  * - S: dostęp do DB
  */
-public interface ContactRepository extends JpaRepository<Contact, Long> {
+public interface ContactRepository extends JpaRepository<Contact, Long>, ContactRepositoryCustom {
     List<Contact> findByOwnerUsername(String ownerUsername);
 
-    long deleteByOwnerUsername(String ownerUsername);
-}
\ No newline at end of file
+    // jedno zapytanie DELETE zamiast wczytywania i usuwania encji pojedynczo;
+    // flush przed i czyszczenie persistence context po, żeby nie zostały w nim usunięte encje
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Contact c where c.ownerUsername = :owner")
+    int deleteByOwnerUsername(@Param("owner") String ownerUsername);
+
+    // --- dostęp z uwzględnieniem właściciela: autoryzacja w tym samym zapytaniu ---
+
+    Optional<Contact> findByIdAndOwnerUsername(Long id, String ownerUsername);
+    // usuwanie/PATCH z warunkiem właściciela: ContactRepositoryCustom
+
+    @Query("select c.ownerUsername from Contact c where c.id = :id")
+    Optional<String> findOwnerUsernameById(@Param("id") Long id);
+
+    // --- lista właściciela: same id (OwnerContactsCache), encje z cache L2 (findAllByIdCached) ---
+
+    @Query("select c.id from Contact c where c.ownerUsername = :owner order by c.id")
+    List<Long> findIdsByOwnerUsername(@Param("owner") String ownerUsername);
+
+    // --- tombstone'y: zapisywane w tej samej transakcji, tuż przed DELETE tych samych wierszy ---
+    // native spaces: natywny INSERT unieważnia tylko contact_tombstones, nie wszystkie regiony cache L2
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_tombstones"))
+    @Query(value = """
+            INSERT INTO contact_tombstones (contact_id, owner_username, deleted_at, change_revision)
+            SELECT id, owner_username, :now, :revision FROM contacts WHERE id IN (:ids)
+            """, nativeQuery = true)
+    int recordTombstones(@Param("ids") Collection<Long> ids, @Param("now") Instant now, @Param("revision") long changeRevision);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "contact_tombstones"))
+    @Query(value = """
+            INSERT INTO contact_tombstones (contact_id, owner_username, deleted_at, change_revision)
+            SELECT id, owner_username, :now, :revision FROM contacts WHERE owner_username = :owner
+            """, nativeQuery = true)
+    int recordTombstonesByOwner(@Param("owner") String ownerUsername, @Param("now") Instant now,
+                                @Param("revision") long changeRevision);
+
+    // --- synchronizacja przyrostowa: indeks (owner_username, change_revision, id) ---
+
+    List<Contact> findByOwnerUsernameAndChangeRevisionGreaterThanOrderByChangeRevisionAscIdAsc(String ownerUsername, long sinceRevision);
+
+    // --- stronicowanie keyset z porządkiem i filtrami: ContactRepositoryCustom.findPage ---
+
+    // --- odczyt kursorem (eksport); wymaga otwartej transakcji ---
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Contact> streamByOwnerUsername(String ownerUsername);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Contact> streamAllBy();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new com.example.contacts.dto.ContactSnapshot(c.id, c.firstName, c.lastName, c.email, c.phone, c.version)
+            from Contact c
+            where c.ownerUsername = :owner
+            """)
+    Stream<ContactSnapshot> streamSnapshotsByOwner(@Param("owner") String ownerUsername);
+
+    // --- budowa indeksów w pamięci (PhoneIndex) i zapytania zastępcze, zanim indeks jest gotowy ---
+
+    @Query("select distinct c.ownerUsername from Contact c")
+    List<String> findOwnerUsernames();
+
+    @Query("""
+            select new com.example.contacts.dto.ContactSnapshot(c.id, c.firstName, c.lastName, c.email, c.phone, c.version)
+            from Contact c
+            where c.ownerUsername = :owner
+            order by c.id
+            """)
+    List<ContactSnapshot> findSnapshotsByOwner(@Param("owner") String ownerUsername);
+
+    @Query("select c.id from Contact c where c.ownerUsername = :owner and c.phone = :phone")
+    List<Long> findIdsByOwnerUsernameAndPhone(@Param("owner") String ownerUsername, @Param("phone") String phone);
+
+    @Query("select c.id from Contact c where c.phone = :phone")
+    List<Long> findIdsByPhone(@Param("phone") String phone);
+
+    // pattern: "%fragment%" małymi literami, z \ przed % i _
+    @Query("""
+            select new com.example.contacts.dto.ContactSnapshot(c.id, c.firstName, c.lastName, c.email, c.phone, c.version)
+            from Contact c
+            where c.ownerUsername = :owner
+              and (lower(c.firstName) like :pattern escape '\\' or lower(c.lastName) like :pattern escape '\\'
+                   or lower(c.email) like :pattern escape '\\' or c.phone like :pattern escape '\\')
+            order by c.id
+            """)
+    List<ContactSnapshot> searchSnapshotsByOwner(@Param("owner") String ownerUsername, @Param("pattern") String pattern, Limit limit);
+
+    @Query("""
+            select new com.example.contacts.dto.ContactSnapshot(c.id, c.firstName, c.lastName, c.email, c.phone, c.version)
+            from Contact c
+            where lower(c.firstName) like :pattern escape '\\' or lower(c.lastName) like :pattern escape '\\'
+               or lower(c.email) like :pattern escape '\\' or c.phone like :pattern escape '\\'
+            order by c.id
+            """)
+    List<ContactSnapshot> searchSnapshots(@Param("pattern") String pattern, Limit limit);
+}
@@ -0,0 +1,48 @@
+package com.example.contacts.repository;
+
+import com.example.contacts.dto.ContactListQuery;
+import com.example.contacts.model.Contact;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fragment repozytorium kontaktów z zapytaniami budowanymi dynamicznie
+ * - S: częściowa aktualizacja (PATCH) i usuwanie jednym zapytaniem, z opcjonalnym
+ *   warunkiem właściciela i wersji; odczyt wielu kontaktów przez cache L2; strona listy
+ *   z wybranym porządkiem i filtrami
+ */
+public interface ContactRepositoryCustom {
+
+    /**
+     * Jedno zapytanie: SELECT version FROM FINAL TABLE (UPDATE contacts
+     * SET &lt;tylko podane kolumny&gt;, version = version + 1, change_revision = ?
+     * WHERE id = ? [AND owner_username = ?] [AND version = ?] AND &lt;któraś kolumna ma inną wartość&gt;)
+     * Z cache L2 usuwany jest tylko ten kontakt.
+     * @param ownerUsername null = bez warunku właściciela
+     * @param expectedVersion null = bez warunku wersji
+     * @param changeRevision rewizja właściciela z OwnerRevisionRepository.lockNextRevision
+     * @return nowa wersja; null = brak kontaktu, cudzy kontakt, inna wersja albo wartości bez zmian
+     */
+    Long updateFields(Long id, String ownerUsername, Long expectedVersion, long changeRevision, Map<String, String> changes);
+
+    /**
+     * DELETE FROM contacts WHERE id = ? [AND owner_username = ?] [AND version = ?]
+     * Z cache L2 usuwany jest tylko ten kontakt.
+     * @return liczba usuniętych wierszy
+     */
+    int deleteMatching(Long id, String ownerUsername, Long expectedVersion);
+
+    /**
+     * Encje o podanych id w kolejności listy; najpierw persistence context i cache L2,
+     * SELECT ... IN (porcjami po 500) dla pozostałych. Usunięte w międzyczasie id są pomijane.
+     */
+    List<Contact> findAllByIdCached(List<Long> ids);
+
+    /**
+     * Strona keyset: WHERE [owner_username = ?] [AND filtry] [AND (klucze, id) &gt; after]
+     * ORDER BY klucze sortowania, id - zgodnie z indeksami z migracji V8
+     * @param after ostatni wiersz poprzedniej strony (potrzebne klucze sortowania i id); null = pierwsza strona
+     */
+    List<Contact> findPage(String ownerUsername, ContactListQuery query, Contact after, int limit);
+}
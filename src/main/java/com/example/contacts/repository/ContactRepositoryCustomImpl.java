@@ -0,0 +1,247 @@
+package com.example.contacts.repository;
+
+import com.example.contacts.dto.ContactListQuery;
+import com.example.contacts.model.Contact;
+import com.example.contacts.model.ContactSortKeys;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Implementacja ContactRepositoryCustom
+ * - S: UPDATE/DELETE jednego wiersza tylko z potrzebnymi kolumnami i warunkami; odczyt wielu encji
+ *   przez cache L2 (Session.byMultipleIds)
+ * - UPDATE/DELETE w natywnym SQL: zapytanie HQL/Criteria czyściłoby cały region "contacts" cache L2,
+ *   tutaj usuwany jest tylko zmieniony wpis
+ * - strona listy w natywnym SQL: porównania kluczy VARBINARY (bajty bez znaku) z kursorem;
+ *   SQL składany wyłącznie ze stałych nazw kolumn, wartości zawsze jako parametry
+ */
+class ContactRepositoryCustomImpl implements ContactRepositoryCustom {
+
+    // przestrzeń zapytań niezwiązana z żadną encją: Hibernate nie czyści regionu "contacts" po natywnym
+    // UPDATE/DELETE, zmieniony wiersz usuwa z cache L2 evictRow
+    private static final String SINGLE_ROW_SPACE = "contacts.single-row";
+
+    // kolumny zmieniane przez PATCH
+    private static final Map<String, String> PATCH_COLUMNS = Map.of(
+            "firstName", "first_name",
+            "lastName", "last_name",
+            "email", "email",
+            "phone", "phone");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Long updateFields(Long id, String ownerUsername, Long expectedVersion, long changeRevision,
+                             Map<String, String> changes) {
+        if (changes.isEmpty()) {
+            return null;
+        }
+        List<String> set = new ArrayList<>();
+        List<String> differs = new ArrayList<>();
+        Map<String, Object> params = new LinkedHashMap<>();
+        changes.forEach((field, value) -> {
+            String column = PATCH_COLUMNS.get(field);
+            if (column == null) {
+                throw new IllegalArgumentException("Field cannot be patched: " + field);
+            }
+            set.add(column + " = :" + field);
+            differs.add(column + " IS DISTINCT FROM :" + field);
+            params.put(field, value);
+        });
+        // @PreUpdate nie działa przy UPDATE z zapytania - klucze sortowania zmienianych pól liczone tutaj
+        if (changes.containsKey("lastName")) {
+            set.add("last_name_key = :lastNameKey");
+            params.put("lastNameKey", ContactSortKeys.key(changes.get("lastName")));
+        }
+        if (changes.containsKey("firstName")) {
+            set.add("first_name_key = :firstNameKey");
+            params.put("firstNameKey", ContactSortKeys.key(changes.get("firstName")));
+        }
+        if (changes.containsKey("email")) {
+            set.add("email_domain = :emailDomain");
+            params.put("emailDomain", ContactSortKeys.emailDomain(changes.get("email")));
+        }
+        // UPDATE z zapytania omija Hibernate: @Version i @UpdateTimestamp trzeba ustawić samemu
+        set.add("version = version + 1");
+        set.add("updated_at = :updatedAt");
+        params.put("updatedAt", Instant.now());
+        set.add("change_revision = :changeRevision");
+        params.put("changeRevision", changeRevision);
+
+        // wartości równe zapisanym: wiersz nie pasuje, więc bez nowej wersji i zapisu
+        String where = matching(id, ownerUsername, expectedVersion, params) + " AND (" + String.join(" OR ", differs) + ")";
+        // FINAL TABLE (H2): nowa wersja z tego samego zapytania, bez osobnego SELECT
+        List<Number> rows = rowStatement("SELECT version FROM FINAL TABLE (UPDATE contacts SET "
+                + String.join(", ", set) + " WHERE " + where + ")", params).getResultList();
+        entityManager.clear();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        evictRow(id);
+        return rows.get(0).longValue();
+    }
+
+    @Override
+    @Transactional
+    public int deleteMatching(Long id, String ownerUsername, Long expectedVersion) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        String where = matching(id, ownerUsername, expectedVersion, params);
+        return executeOnRow("DELETE FROM contacts WHERE " + where, id, params);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Contact> findAllByIdCached(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // najpierw persistence context i cache L2, SELECT ... IN tylko dla brakujących id
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Contact.class)
+                .enableOrderedReturn(true)
+                .withBatchSize(500)
+                .multiLoad(ids)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Contact> findPage(String ownerUsername, ContactListQuery query, Contact after, int limit) {
+        List<SortColumn> columns = sortColumns(query);
+        List<String> where = new ArrayList<>();
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (ownerUsername != null) {
+            where.add("owner_username = :owner");
+            params.put("owner", ownerUsername);
+        }
+        if (query.getLastName() != null && !query.getLastName().isBlank()) {
+            where.add("LOWER(last_name) LIKE :lastName ESCAPE '\\'");
+            params.put("lastName", prefixPattern(query.getLastName()));
+        }
+        if (query.getFirstName() != null && !query.getFirstName().isBlank()) {
+            where.add("LOWER(first_name) LIKE :firstName ESCAPE '\\'");
+            params.put("firstName", prefixPattern(query.getFirstName()));
+        }
+        if (query.getDomain() != null && !query.getDomain().isBlank()) {
+            where.add("email_domain = :domain");
+            params.put("domain", ContactSortKeys.emailDomain("@" + query.getDomain()));
+        }
+        if (after != null) {
+            // (k0 > ?) OR (k0 = ? AND k1 > ?) OR ... - postać, którą H2 obsługuje zakresem po indeksie
+            List<String> alternatives = new ArrayList<>();
+            for (int i = 0; i < columns.size(); i++) {
+                List<String> terms = new ArrayList<>();
+                for (int j = 0; j < i; j++) {
+                    terms.add(columns.get(j).name + " = :k" + j);
+                }
+                terms.add(columns.get(i).name + " > :k" + i);
+                alternatives.add("(" + String.join(" AND ", terms) + ")");
+                params.put("k" + i, columns.get(i).value.apply(after));
+            }
+            where.add("(" + String.join(" OR ", alternatives) + ")");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM contacts");
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+        sql.append(" ORDER BY ").append(String.join(", ", columns.stream().map(c -> c.name).toList()));
+
+        Query page = entityManager.createNativeQuery(sql.toString(), Contact.class);
+        params.forEach(page::setParameter);
+        page.setMaxResults(limit);
+        return page.getResultList();
+    }
+
+    private int executeOnRow(String sql, Long id, Map<String, Object> params) {
+        int rows = rowStatement(sql, params).executeUpdate();
+        entityManager.clear();
+        if (rows > 0) {
+            evictRow(id);
+        }
+        return rows;
+    }
+
+    // wywołujący czyści persistence context po wykonaniu: encje byłyby nieaktualne po UPDATE/DELETE z zapytania
+    private Query rowStatement(String sql, Map<String, Object> params) {
+        entityManager.flush();
+        Query statement = entityManager.createNativeQuery(sql);
+        statement.setHint(HibernateHints.HINT_NATIVE_SPACES, SINGLE_ROW_SPACE);
+        params.forEach(statement::setParameter);
+        return statement;
+    }
+
+    // od razu i ponownie po zakończeniu transakcji: odczyt z innej transakcji przed commit
+    // mógłby w międzyczasie wstawić do cache poprzednią wersję wiersza
+    private void evictRow(Long id) {
+        Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Contact.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evictEntityData(Contact.class, id);
+                }
+            });
+        }
+    }
+
+    private static String matching(Long id, String ownerUsername, Long expectedVersion, Map<String, Object> params) {
+        List<String> where = new ArrayList<>();
+        where.add("id = :id");
+        params.put("id", id);
+        if (ownerUsername != null) {
+            where.add("owner_username = :owner");
+            params.put("owner", ownerUsername);
+        }
+        if (expectedVersion != null) {
+            where.add("version = :expectedVersion");
+            params.put("expectedVersion", expectedVersion);
+        }
+        return String.join(" AND ", where);
+    }
+
+    private record SortColumn(String name, Function<Contact, Object> value) {
+    }
+
+    private static final SortColumn LAST_NAME_KEY = new SortColumn("last_name_key", Contact::getLastNameKey);
+    private static final SortColumn FIRST_NAME_KEY = new SortColumn("first_name_key", Contact::getFirstNameKey);
+    private static final SortColumn EMAIL_DOMAIN = new SortColumn("email_domain", Contact::getEmailDomain);
+    private static final SortColumn ID = new SortColumn("id", Contact::getId);
+
+    // kolejność kolumn = kolejność w indeksach idx_contacts_owner_*_key / idx_contacts_owner_domain
+    private static List<SortColumn> sortColumns(ContactListQuery query) {
+        return switch (query.getSort()) {
+            case LAST_NAME -> List.of(LAST_NAME_KEY, FIRST_NAME_KEY, ID);
+            case FIRST_NAME -> List.of(FIRST_NAME_KEY, LAST_NAME_KEY, ID);
+            case EMAIL_DOMAIN -> List.of(EMAIL_DOMAIN, LAST_NAME_KEY, FIRST_NAME_KEY, ID);
+        };
+    }
+
+    private static String prefixPattern(String prefix) {
+        return prefix.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.contacts.repository;
+
+import com.example.contacts.model.ContactTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repozytorium tombstone'ów
+ * - S: odczyt usunięć od tokenu synchronizacji i kompaktowanie starych wpisów
+ */
+public interface ContactTombstoneRepository extends JpaRepository<ContactTombstone, Long> {
+
+    @Query("select t.contactId from ContactTombstone t where t.ownerUsername = :owner and t.changeRevision > :since")
+    List<Long> findDeletedIdsSince(@Param("owner") String ownerUsername, @Param("since") long sinceRevision);
+
+    // tylko tombstone'y objęte compacted_revision (OwnerRevisionRepository.markCompacted w tej samej transakcji);
+    // zatwierdzony w międzyczasie zostaje do następnego przebiegu
+    @Modifying
+    @Query("""
+            delete from ContactTombstone t where t.deletedAt < :cutoff and t.changeRevision <= (
+                select r.compactedRevision from OwnerRevision r where r.ownerUsername = t.ownerUsername)
+            """)
+    int deleteCompacted(@Param("cutoff") Instant cutoff);
+}
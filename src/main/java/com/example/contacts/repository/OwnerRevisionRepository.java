@@ -0,0 +1,83 @@
+package com.example.contacts.repository;
+
+import com.example.contacts.model.OwnerRevision;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repozytorium liczników zmian
+ * - S: odczyt rewizji (jedno zapytanie po kluczu) i atomowe zwiększanie
+ * - zapisy kontaktów najpierw blokują wiersz właściciela (lockNextRevision), na końcu zwiększają licznik (bump):
+ *   zapisy jednego właściciela idą po kolei, a rewizje rosną w kolejności commitów
+ */
+public interface OwnerRevisionRepository extends JpaRepository<OwnerRevision, String> {
+
+    @Query("select r.revision from OwnerRevision r where r.ownerUsername = :owner")
+    Optional<Long> findRevision(@Param("owner") String ownerUsername);
+
+    // rewizje tylko rosną, więc suma też rośnie przy każdej zmianie dowolnego właściciela (widok admina)
+    @Query("select coalesce(sum(r.revision), 0) from OwnerRevision r")
+    long sumRevisions();
+
+    /**
+     * Blokuje wiersz właściciela do końca transakcji i zwraca rewizję, którą dostaną zmieniane wiersze
+     * i tombstone'y (= wartość licznika po bump). Inna transakcja zapisu tego właściciela czeka na commit,
+     * więc odczytana rewizja jest ostatnią zatwierdzoną.
+     */
+    default long lockNextRevision(String ownerUsername) {
+        Optional<Long> current = lockRevision(ownerUsername);
+        if (current.isEmpty()) {
+            insertIfAbsent(ownerUsername);
+            current = lockRevision(ownerUsername);
+        }
+        return current.orElseThrow() + 1;
+    }
+
+    @Query(value = "SELECT revision FROM owner_revisions WHERE owner_username = :owner FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockRevision(@Param("owner") String ownerUsername);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "owner_revisions"))
+    @Query(value = """
+            MERGE INTO owner_revisions r
+            USING (VALUES (CAST(:owner AS VARCHAR(255)))) s(owner_username)
+            ON r.owner_username = s.owner_username
+            WHEN NOT MATCHED THEN INSERT (owner_username, revision) VALUES (s.owner_username, 0)
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("owner") String ownerUsername);
+
+    // --- kompaktowanie tombstone'ów (TombstoneCompactor), przed ich usunięciem ---
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "owner_revisions"))
+    @Query(value = """
+            UPDATE owner_revisions r
+            SET compacted_revision = GREATEST(r.compacted_revision, (
+                SELECT MAX(t.change_revision) FROM contact_tombstones t
+                WHERE t.owner_username = r.owner_username AND t.deleted_at < :cutoff))
+            WHERE EXISTS (SELECT 1 FROM contact_tombstones t
+                          WHERE t.owner_username = r.owner_username AND t.deleted_at < :cutoff)
+            """, nativeQuery = true)
+    int markCompacted(@Param("cutoff") Instant cutoff);
+
+    // upsert jednym zapytaniem; wywoływane w transakcji zapisu kontaktów.
+    // native spaces: bez nich Hibernate czyściłby przy każdym zapisie cały cache L2
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "owner_revisions"))
+    @Query(value = """
+            MERGE INTO owner_revisions r
+            USING (VALUES (CAST(:owner AS VARCHAR(255)))) s(owner_username)
+            ON r.owner_username = s.owner_username
+            WHEN MATCHED THEN UPDATE SET revision = r.revision + 1
+            WHEN NOT MATCHED THEN INSERT (owner_username, revision) VALUES (s.owner_username, 1)
+            """, nativeQuery = true)
+    int bump(@Param("owner") String ownerUsername);
+}
@@ -2,9 +2,14 @@ package com.example.contacts.repository;
 
 import com.example.contacts.model.AppUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repozytorium użytkowników
@@ -13,4 +18,18 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<AppUser, Long> {
     Optional<AppUser> findByUsername(String username);
+
+    // jedno zapytanie IN na porcję przy zbiorczym zakładaniu kont (zamiast findByUsername per wiersz)
+    @Query("select u.username from AppUser u where u.username in :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    // --- unieważnianie tokenów: wersja w tokenie przestaje się zgadzać z bazą (TokenRevocationChecker) ---
+
+    @Modifying
+    @Query("update AppUser u set u.tokenVersion = u.tokenVersion + 1 where u.username = :username")
+    int incrementTokenVersion(@Param("username") String username);
+
+    @Modifying
+    @Query("update AppUser u set u.role = :role, u.tokenVersion = u.tokenVersion + 1 where u.username = :username")
+    int updateRoleAndRevokeTokens(@Param("username") String username, @Param("role") String role);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.example.contacts.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal po uwierzytelnieniu hasłem
+ * - S: UserDetails + wersja użytkownika, żeby token JWT można było wydać bez ponownego odczytu z bazy
+ */
+public class AppUserPrincipal extends User {
+
+    private final int tokenVersion;
+
+    public AppUserPrincipal(String username, String password,
+                            Collection<? extends GrantedAuthority> authorities, int tokenVersion) {
+        super(username, password, authorities);
+        this.tokenVersion = tokenVersion;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+}
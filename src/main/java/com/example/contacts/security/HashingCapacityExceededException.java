@@ -0,0 +1,18 @@
+package com.example.contacts.security;
+
+/**
+ * Kolejka haszowania haseł pełna - żądanie odrzucane od razu (503 + Retry-After)
+ */
+public class HashingCapacityExceededException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public HashingCapacityExceededException(int retryAfterSeconds) {
+        super("Password hashing capacity exceeded");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
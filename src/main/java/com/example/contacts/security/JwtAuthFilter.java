@@ -1,11 +1,14 @@
 package com.example.contacts.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -13,21 +16,28 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
 
  * - S: tylko obsługa nagłówka Authorization / ustawienie Authentication
  * - D: zależności wstrzykiwane przez konstruktor (JwtService interface, UserDetailsService)
+ * - Authentication budowane z podpisanych claimów (sub, role) bez odczytu użytkownika z bazy;
+ *   UserDetailsService tylko dla starszych tokenów bez claimu roli
  */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationChecker revocationChecker;
 
-    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtService jwtService,
+                         UserDetailsService userDetailsService,
+                         TokenRevocationChecker revocationChecker) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.revocationChecker = revocationChecker;
     }
 
     @Override
@@ -57,12 +67,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String token = authHeader.substring(7);
 
         try {
-            String username = jwtService.extractUsername(token);
+            Claims claims = jwtService.extractClaim(token, c -> c);
+            String username = claims.getSubject();
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+                Authentication authToken = authenticationFrom(claims, username);
+                if (authToken != null) {
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                }
             }
         } catch (JwtException e) {
             SecurityContextHolder.clearContext();
@@ -70,4 +81,21 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private Authentication authenticationFrom(Claims claims, String username) {
+        String role = claims.get(JwtServiceImpl.ROLE_CLAIM, String.class);
+        if (role == null) {
+            // token wydany przed dodaniem claimów - rola z bazy
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        }
+        if (revocationChecker.appliesTo(role)) {
+            Integer version = claims.get(JwtServiceImpl.USER_VERSION_CLAIM, Integer.class);
+            if (!revocationChecker.isCurrent(username, role, version)) {
+                return null;
+            }
+        }
+        return new UsernamePasswordAuthenticationToken(
+                username, null, List.of(new SimpleGrantedAuthority(role)));
+    }
+}
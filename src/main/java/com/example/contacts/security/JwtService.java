@@ -9,6 +9,7 @@ import org.springframework.security.core.userdetails.UserDetails;
  */
 public interface JwtService {
     String generateToken(UserDetails userDetails);
+    String generateToken(UserDetails userDetails, int tokenVersion);
     String extractUsername(String token);
     <T> T extractClaim(String token, java.util.function.Function<io.jsonwebtoken.Claims, T> resolver);
     boolean validateToken(String token);
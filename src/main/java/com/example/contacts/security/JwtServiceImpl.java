@@ -1,45 +1,94 @@
 package com.example.contacts.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
  * Implementacja JwtService
  * - S: odpowiedzialność - operacje na tokenach
  * - O: można zaimplementować alternatywny JwtService (np. RSA) bez zmian w klientach
+ * - zweryfikowane claimy trzymane w cache (klucz = SHA-256 tokenu, wpis wygasa razem z tokenem),
+ *   więc kolejne żądania z tym samym tokenem pomijają weryfikację podpisu i parsowanie JSON
  */
 @Service
-public class JwtServiceImpl implements JwtService {
+public class JwtServiceImpl implements JwtService, MeterBinder {
+
+    // claimy pozwalające zbudować Authentication bez odczytu użytkownika z bazy
+    public static final String ROLE_CLAIM = "role";
+    public static final String USER_VERSION_CLAIM = "uv";
+
+    static final long DEFAULT_CLAIMS_CACHE_SIZE = 10_000;
 
     private final SecretKey signingKey;
     private final long jwtExpiration;
+    // JwtParser jest niemutowalny i bezpieczny wątkowo - budowany raz
+    private final JwtParser parser;
+    private final Cache<String, Claims> claimsCache;
+
+    public JwtServiceImpl(String jwtSecret, long jwtExpiration) {
+        this(jwtSecret, jwtExpiration, DEFAULT_CLAIMS_CACHE_SIZE);
+    }
 
+    @Autowired
     public JwtServiceImpl(@Value("${jwt.secret}") String jwtSecret,
-                          @Value("${jwt.expiration}") long jwtExpiration) {
+                          @Value("${jwt.expiration}") long jwtExpiration,
+                          @Value("${jwt.claims-cache.size:10000}") long claimsCacheSize) {
         byte[] bytes = Decoders.BASE64.decode(jwtSecret);
         this.signingKey = Keys.hmacShaKeyFor(bytes);
         this.jwtExpiration = jwtExpiration;
+        this.parser = Jwts.parser().setSigningKey(signingKey).build();
+        this.claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
     }
 
     @Override
     public String generateToken(UserDetails userDetails) {
+        return generateToken(userDetails, 0);
+    }
+
+    @Override
+    public String generateToken(UserDetails userDetails, int tokenVersion) {
         Date now = new Date();
         Date expiry = new Date(now.getTime() + jwtExpiration);
+        String role = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .findFirst()
+                .orElse(null);
         return Jwts.builder()
                 .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
+                .claim(ROLE_CLAIM, role)
+                .claim(USER_VERSION_CLAIM, tokenVersion)
                 .setIssuedAt(now)
                 .setExpiration(expiry)
                 .signWith(signingKey, SignatureAlgorithm.HS256)
@@ -53,21 +102,64 @@ public class JwtServiceImpl implements JwtService {
 
     @Override
     public <T> T extractClaim(String token, Function<Claims, T> resolver) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return resolver.apply(claims);
+        return resolver.apply(verifiedClaims(token));
     }
 
     @Override
     public boolean validateToken(String token) {
         try {
-            Jwts.parser().setSigningKey(signingKey).build().parseClaimsJws(token);
+            verifiedClaims(token);
             return true;
         } catch (JwtException e) {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // jwt.claims: cache.gets{result=hit|miss}, cache.evictions, cache.size
+        CaffeineCacheMetrics.monitor(registry, claimsCache, "jwt.claims");
+    }
+
+    CacheStats claimsCacheStats() {
+        return claimsCache.stats();
+    }
+
+    // błędny token (JwtException) nie trafia do cache - wyjątek przechodzi do wywołującego
+    private Claims verifiedClaims(String token) {
+        return claimsCache.get(digest(token), k -> parser.parseClaimsJws(token).getBody());
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // wpis żyje do "exp" tokenu (parser i tak odrzuca tokeny już wygasłe)
+    private static final class UntilTokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date exp = claims.getExpiration();
+            if (exp == null) {
+                return TimeUnit.MINUTES.toNanos(5);
+            }
+            long millis = exp.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(millis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
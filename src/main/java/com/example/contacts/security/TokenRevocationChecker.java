@@ -0,0 +1,81 @@
+package com.example.contacts.security;
+
+import com.example.contacts.repository.UserRepository;
+import com.example.contacts.service.UserTokensRevokedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Sprawdzanie unieważnienia tokenów: wszystkich (jwt.revocation-check.enabled) albo domyślnie
+ * tylko tokenów z ROLE_ADMIN (jwt.revocation-check.admin-tokens) - odebranie roli admina działa od razu,
+ * a nie dopiero po wygaśnięciu tokenu; tokeny zwykłych użytkowników nadal bez odczytu z bazy
+ * - S: porównanie roli i wersji użytkownika z tokenu ze stanem w bazie;
+ *   wynik odczytu trzymany w ograniczonym cache z TTL, więc baza jest pytana
+ *   najwyżej raz na użytkownika na okres TTL, a nie przy każdym żądaniu
+ * - zmiana roli / unieważnienie tokenów (UserAccountService) usuwa wpis po commit - bez czekania na TTL
+ */
+@Component
+public class TokenRevocationChecker {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final boolean adminTokens;
+    private final Cache<String, Optional<PrincipalState>> cache;
+
+    public TokenRevocationChecker(UserRepository userRepository,
+                                  @Value("${jwt.revocation-check.enabled:false}") boolean enabled,
+                                  @Value("${jwt.revocation-check.admin-tokens:true}") boolean adminTokens,
+                                  @Value("${jwt.revocation-check.cache-ttl:60s}") Duration cacheTtl,
+                                  @Value("${jwt.revocation-check.cache-size:10000}") long cacheSize) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.adminTokens = adminTokens;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /** Czy token z tą rolą trzeba porównać z bazą. */
+    public boolean appliesTo(String role) {
+        return enabled || (adminTokens && "ROLE_ADMIN".equals(role));
+    }
+
+    /**
+     * true, jeśli użytkownik nadal istnieje, ma tę samą rolę i tę samą wersję co w tokenie
+     */
+    public boolean isCurrent(String username, String role, Integer tokenVersion) {
+        Optional<PrincipalState> state = cache.get(username, this::load);
+        return state.isPresent()
+                && state.get().role().equals(role)
+                && state.get().tokenVersion() == (tokenVersion == null ? 0 : tokenVersion);
+    }
+
+    /**
+     * usuwa wpis użytkownika, np. po zmianie roli lub zwiększeniu wersji
+     */
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    // po commit: odczyt przed commit wstawiłby do cache poprzednią rolę/wersję
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokensRevoked(UserTokensRevokedEvent event) {
+        evict(event.getUsername());
+    }
+
+    private Optional<PrincipalState> load(String username) {
+        return userRepository.findByUsername(username)
+                .map(u -> new PrincipalState(Objects.toString(u.getRole(), ""), u.getTokenVersion()));
+    }
+
+    private record PrincipalState(String role, int tokenVersion) {
+    }
+}
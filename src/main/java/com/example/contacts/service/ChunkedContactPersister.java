@@ -0,0 +1,56 @@
+package com.example.contacts.service;
+
+import com.example.contacts.model.Contact;
+import com.example.contacts.repository.ContactRepository;
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zapis importowanych kontaktów porcjami
+ * - S: buforuje co najwyżej chunkSize encji, zapisuje je, robi flush i czyści persistence context,
+ *   dzięki czemu import dowolnej wielkości działa w stałej pamięci (w ramach jednej transakcji)
+ */
+class ChunkedContactPersister {
+
+    private final ContactRepository contactRepository;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+
+    private final List<Contact> chunk;
+    private long persisted;
+
+    ChunkedContactPersister(ContactRepository contactRepository, EntityManager entityManager, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.contactRepository = contactRepository;
+        this.entityManager = entityManager;
+        this.chunkSize = chunkSize;
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    void accept(Contact contact) {
+        chunk.add(contact);
+        if (chunk.size() >= chunkSize) {
+            flushChunk();
+        }
+    }
+
+    /** Zapisuje resztę bufora; zwraca łączną liczbę zapisanych kontaktów. */
+    long finish() {
+        if (!chunk.isEmpty()) {
+            flushChunk();
+        }
+        return persisted;
+    }
+
+    private void flushChunk() {
+        contactRepository.saveAll(chunk);
+        entityManager.flush();
+        entityManager.clear();
+        persisted += chunk.size();
+        chunk.clear();
+    }
+}
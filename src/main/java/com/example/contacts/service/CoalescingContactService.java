@@ -0,0 +1,244 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactChanges;
+import com.example.contacts.dto.ContactListQuery;
+import com.example.contacts.dto.ContactPage;
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.dto.ExportSnapshot;
+import com.example.contacts.dto.ImportResult;
+import com.example.contacts.model.Contact;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dekorator ContactService łączący współbieżne identyczne odczyty
+ * - O: zachowanie dodane bez zmian w ContactServiceImpl; kontrolery dostają ten bean (@Primary)
+ * - klucz = (użytkownik, rola, operacja, parametry); wywołania z tym samym kluczem w trakcie trwającego
+ *   odczytu dostają jego wynik, wyniki nie są przechowywane po zakończeniu
+ * - zapis kontaktów właściciela (po commit) odłącza trwające odczyty tego właściciela i admina,
+ *   więc wywołanie rozpoczęte po zapisie nigdy nie dostanie danych sprzed niego
+ * - eksporty do limitu contacts.export-cache.max-snapshot-bytes łączone jako gotowe bajty i trzymane
+ *   (surowe + gzip) w ExportSnapshotCache do zmiany rewizji właściciela; większe, widok admina
+ *   i exportTo*(OutputStream) pisane strumieniowo przez delegata, bez kopii w pamięci
+ */
+@Service
+@Primary
+public class CoalescingContactService implements ContactService, MeterBinder {
+
+    record FlightKey(String username, boolean admin, String operation, List<Object> params) {
+    }
+
+    private final ContactService delegate;
+    private final ExportSnapshotCache exportCache;
+    private final SingleFlight<FlightKey> flights = new SingleFlight<>();
+
+    public CoalescingContactService(@Qualifier("contactServiceImpl") ContactService delegate,
+                                    ExportSnapshotCache exportCache) {
+        this.delegate = delegate;
+        this.exportCache = exportCache;
+    }
+
+    // --- odczyty łączone ---
+
+    @Override
+    public List<Contact> getAllContacts() {
+        return flights.execute(key("all"), delegate::getAllContacts);
+    }
+
+    @Override
+    public ContactPage getContactsPage(String after, Integer limit, ContactListQuery query) {
+        return flights.execute(key("page", after, limit, query), () -> delegate.getContactsPage(after, limit, query));
+    }
+
+    @Override
+    public ContactChanges getChanges(String since) {
+        return flights.execute(key("changes", since), () -> delegate.getChanges(since));
+    }
+
+    @Override
+    public String exportToJson() throws Exception {
+        ExportSnapshot snapshot = exportJsonSnapshot();
+        return snapshot != null ? new String(snapshot.getRaw(), StandardCharsets.UTF_8) : delegate.exportToJson();
+    }
+
+    // zapis do strumienia zawsze strumieniowo (kontroler używa go, gdy eksport nie mieści się w buforze)
+    @Override
+    public void exportToJson(OutputStream out) throws IOException {
+        delegate.exportToJson(out);
+    }
+
+    @Override
+    public String exportToXml() throws Exception {
+        ExportSnapshot snapshot = exportXmlSnapshot();
+        return snapshot != null ? new String(snapshot.getRaw(), StandardCharsets.UTF_8) : delegate.exportToXml();
+    }
+
+    @Override
+    public void exportToXml(OutputStream out) throws IOException {
+        delegate.exportToXml(out);
+    }
+
+    @Override
+    public ExportSnapshot exportJsonSnapshot() throws IOException {
+        return exportSnapshot("json", delegate::exportJsonSnapshot);
+    }
+
+    @Override
+    public ExportSnapshot exportXmlSnapshot() throws IOException {
+        return exportSnapshot("xml", delegate::exportXmlSnapshot);
+    }
+
+    // trafienie w cache: jedno zapytanie o rewizję, bez serializacji i kompresji;
+    // null (widok admina, eksport ponad limit) nie trafia do cache - wywołujący pisze strumieniowo;
+    // eksport ponad limit zostawia znacznik dla rewizji sprzed odczytu, więc kolejne żądania
+    // tej rewizji nie serializują go ponownie do limitu
+    private ExportSnapshot exportSnapshot(String format, SingleFlight.Call<ExportSnapshot, IOException> load)
+            throws IOException {
+        FlightKey probe = key("export." + format);
+        if (probe.admin()) {
+            return null;
+        }
+        long revision = delegate.getRevision();
+        if (exportCache.isOversized(probe.username(), format, revision)) {
+            return null;
+        }
+        ExportSnapshot cached = exportCache.get(probe.username(), format, revision);
+        if (cached != null) {
+            return cached;
+        }
+        return flights.execute(key("export." + format, revision), () -> {
+            ExportSnapshot loaded = load.call();
+            if (loaded != null) {
+                exportCache.put(probe.username(), format, loaded);
+            } else {
+                exportCache.markOversized(probe.username(), format, revision);
+            }
+            return loaded;
+        });
+    }
+
+    // fallbackExecution: zapisy wywołane poza transakcją też odłączają trwające odczyty
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContactChanged(ContactChangedEvent event) {
+        flights.detach(k -> k.admin() || k.username().equals(event.getOwnerUsername()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("contacts.reads.in-flight", flights, SingleFlight::inFlight)
+                .description("Odczyty kontaktów w trakcie wykonywania, do których mogą dołączyć kolejne wywołania")
+                .register(registry);
+        FunctionCounter.builder("contacts.reads.coalesced", flights, SingleFlight::joined)
+                .description("Wywołania obsłużone wynikiem trwającego identycznego odczytu")
+                .register(registry);
+    }
+
+    long coalescedCount() {
+        return flights.joined();
+    }
+
+    private static FlightKey key(String operation, Object... params) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        boolean admin = auth.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        return new FlightKey(auth.getName(), admin, operation, Arrays.asList(params));
+    }
+
+    // --- pozostałe operacje bez zmian ---
+
+    @Override
+    public long getRevision() {
+        return delegate.getRevision();
+    }
+
+    @Override
+    public Contact getContact(Long id) {
+        return delegate.getContact(id);
+    }
+
+    @Override
+    public List<Long> findContactIdsByPhone(String phone) {
+        return delegate.findContactIdsByPhone(phone);
+    }
+
+    @Override
+    public List<ContactSnapshot> searchContacts(String query, Integer limit) {
+        return delegate.searchContacts(query, limit);
+    }
+
+    @Override
+    public Contact addContact(Contact contact) {
+        return delegate.addContact(contact);
+    }
+
+    @Override
+    public Contact updateContact(Long id, Contact contact, Long expectedVersion) {
+        return delegate.updateContact(id, contact, expectedVersion);
+    }
+
+    @Override
+    public Long patchContact(Long id, Map<String, Object> patch, Long expectedVersion) {
+        return delegate.patchContact(id, patch, expectedVersion);
+    }
+
+    @Override
+    public boolean deleteContact(Long id, Long expectedVersion) {
+        return delegate.deleteContact(id, expectedVersion);
+    }
+
+    @Override
+    public void importFromJson(String json) throws Exception {
+        delegate.importFromJson(json);
+    }
+
+    @Override
+    public void importFromXml(String xml) throws Exception {
+        delegate.importFromXml(xml);
+    }
+
+    @Override
+    public void replaceContacts(List<Contact> contacts) {
+        delegate.replaceContacts(contacts);
+    }
+
+    @Override
+    public long replaceContactsFromJson(InputStream json) throws IOException {
+        return delegate.replaceContactsFromJson(json);
+    }
+
+    @Override
+    public ImportResult mergeContactsFromJson(InputStream json) throws IOException {
+        return delegate.mergeContactsFromJson(json);
+    }
+
+    @Override
+    public void replaceContactsFromXml(String xml) throws Exception {
+        delegate.replaceContactsFromXml(xml);
+    }
+
+    @Override
+    public long replaceContactsFromXml(InputStream xml) throws IOException, XMLStreamException {
+        return delegate.replaceContactsFromXml(xml);
+    }
+
+    @Override
+    public ImportResult mergeContactsFromXml(InputStream xml) throws IOException, XMLStreamException {
+        return delegate.mergeContactsFromXml(xml);
+    }
+}
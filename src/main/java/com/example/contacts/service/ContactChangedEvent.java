@@ -0,0 +1,50 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.model.Contact;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Zdarzenie po zapisie kontaktów w ContactServiceImpl
+ * - S: opisuje zmianę jednego właściciela; indeksy w pamięci stosują je po commit (@TransactionalEventListener)
+ * - O: nowy indeks/cache = nowy listener, bez zmian w serwisie
+ * - version: wersja kontaktu po zapisie (SAVED, PATCHED) - zdarzenia z transakcji zatwierdzonych tuż po sobie
+ *   mogą dotrzeć w innej kolejności, indeks pomija starsze niż już zastosowane
+ */
+@Value
+public class ContactChangedEvent {
+
+    public enum Kind {
+        SAVED,      // dodany albo zmieniony w całości: contact
+        PATCHED,    // zmienione tylko pola z changes
+        DELETED,    // usunięty contactId
+        RELOADED    // zmiany zbiorcze (import) - stan właściciela trzeba wczytać z bazy
+    }
+
+    Kind kind;
+    String ownerUsername;
+    Long contactId;
+    Long version;
+    ContactSnapshot contact;
+    Map<String, String> changes;
+
+    public static ContactChangedEvent saved(Contact c) {
+        return new ContactChangedEvent(Kind.SAVED, c.getOwnerUsername(), c.getId(), c.getVersion(),
+                new ContactSnapshot(c.getId(), c.getFirstName(), c.getLastName(), c.getEmail(), c.getPhone(), c.getVersion()),
+                Map.of());
+    }
+
+    public static ContactChangedEvent patched(Long id, String ownerUsername, Long version, Map<String, String> changes) {
+        return new ContactChangedEvent(Kind.PATCHED, ownerUsername, id, version, null, changes);
+    }
+
+    public static ContactChangedEvent deleted(Long id, String ownerUsername) {
+        return new ContactChangedEvent(Kind.DELETED, ownerUsername, id, null, null, Map.of());
+    }
+
+    public static ContactChangedEvent reloaded(String ownerUsername) {
+        return new ContactChangedEvent(Kind.RELOADED, ownerUsername, null, null, null, Map.of());
+    }
+}
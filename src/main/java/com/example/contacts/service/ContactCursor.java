@@ -0,0 +1,70 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSort;
+import com.example.contacts.model.Contact;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Kursor stronicowania keyset po kluczach sortowania (ContactSortKeys) i id
+ * - S: kodowanie/dekodowanie nieprzezroczystego tokenu "after"; zawiera porządek, dla którego powstał
+ */
+@Value
+class ContactCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    ContactSort sort;
+    byte[] lastNameKey;
+    byte[] firstNameKey;
+    String emailDomain;
+    Long id;
+
+    static ContactCursor of(ContactSort sort, Contact c) {
+        return new ContactCursor(sort, c.getLastNameKey(), c.getFirstNameKey(), c.getEmailDomain(), c.getId());
+    }
+
+    /** Ostatni wiersz poprzedniej strony w postaci oczekiwanej przez ContactRepository.findPage. */
+    Contact toAfter() {
+        return Contact.builder()
+                .id(id)
+                .lastNameKey(lastNameKey)
+                .firstNameKey(firstNameKey)
+                .emailDomain(emailDomain)
+                .build();
+    }
+
+    String encode() {
+        try {
+            Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+            byte[] json = MAPPER.writeValueAsBytes(new Object[]{
+                    sort.name(), base64.encodeToString(lastNameKey), base64.encodeToString(firstNameKey), emailDomain, id
+            });
+            return base64.encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode cursor", e);
+        }
+    }
+
+    static ContactCursor decode(String token) {
+        try {
+            Base64.Decoder base64 = Base64.getUrlDecoder();
+            byte[] json = base64.decode(token);
+            Object[] parts = MAPPER.readValue(new String(json, StandardCharsets.UTF_8), Object[].class);
+            if (parts.length != 5 || !(parts[0] instanceof String) || !(parts[1] instanceof String)
+                    || !(parts[2] instanceof String) || !(parts[3] instanceof String) || !(parts[4] instanceof Number)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ContactCursor(ContactSort.valueOf((String) parts[0]),
+                    base64.decode((String) parts[1]), base64.decode((String) parts[2]),
+                    (String) parts[3], ((Number) parts[4]).longValue());
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.contacts.service;
+
+import com.example.contacts.model.Contact;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Strumieniowy zapis eksportu kontaktów
+ * - S: serializacja kontaktów wiersz po wierszu prosto do strumienia wyjściowego
+ *   (pamięć nie rośnie z rozmiarem eksportu)
+ */
+class ContactExportWriter {
+
+    // co tyle kontaktów bufor XML jest wypychany do klienta
+    static final int XML_FLUSH_EVERY = 500;
+
+    private final ObjectMapper objectMapper;
+    private final XMLOutputFactory xmlOutputFactory;
+
+    ContactExportWriter(ObjectMapper objectMapper, XMLOutputFactory xmlOutputFactory) {
+        this.objectMapper = objectMapper;
+        this.xmlOutputFactory = xmlOutputFactory;
+    }
+
+    /**
+     * Zapisuje tablicę JSON w tym samym formacie co wcześniejszy eksport (pretty print).
+     * afterWrite dostaje każdy zapisany kontakt (np. żeby odpiąć encję od persistence context).
+     */
+    void writeJson(Iterator<Contact> contacts, OutputStream out, Consumer<Contact> afterWrite) throws IOException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.useDefaultPrettyPrinter();
+            gen.writeStartArray();
+            while (contacts.hasNext()) {
+                Contact c = contacts.next();
+                gen.writeObject(exportView(c));
+                afterWrite.accept(c);
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    /**
+     * Zapisuje {@code <contacts><contact>...</contact></contacts>} zgodnie ze schematem ContactsExportDTO
+     * (te same elementy i kolejność co w serializacji XmlMapper, puste id/ownerUsername).
+     */
+    void writeXml(Iterator<Contact> contacts, OutputStream out, Consumer<Contact> afterWrite) throws IOException {
+        try {
+            XMLStreamWriter xml = xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("contacts");
+            int written = 0;
+            while (contacts.hasNext()) {
+                Contact c = contacts.next();
+                xml.writeCharacters("\n  ");
+                xml.writeStartElement("contact");
+                writeEmpty(xml, "id");
+                writeField(xml, "firstName", c.getFirstName());
+                writeField(xml, "lastName", c.getLastName());
+                writeField(xml, "email", c.getEmail());
+                writeField(xml, "phone", c.getPhone());
+                writeEmpty(xml, "ownerUsername");
+                xml.writeCharacters("\n  ");
+                xml.writeEndElement();
+                afterWrite.accept(c);
+                if (++written % XML_FLUSH_EVERY == 0) {
+                    xml.flush();
+                }
+            }
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndDocument();
+            xml.flush();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("XML export failed", e);
+        }
+    }
+
+    private static void writeField(XMLStreamWriter xml, String name, String value) throws XMLStreamException {
+        if (value == null) {
+            writeEmpty(xml, name);
+            return;
+        }
+        xml.writeCharacters("\n    ");
+        xml.writeStartElement(name);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+
+    private static void writeEmpty(XMLStreamWriter xml, String name) throws XMLStreamException {
+        xml.writeCharacters("\n    ");
+        xml.writeEmptyElement(name);
+    }
+
+    // eksport nie zawiera id ani właściciela
+    static Contact exportView(Contact c) {
+        return Contact.builder()
+                .firstName(c.getFirstName())
+                .lastName(c.getLastName())
+                .email(c.getEmail())
+                .phone(c.getPhone())
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.contacts.service;
+
+import com.example.contacts.model.Contact;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Strumieniowy odczyt importu kontaktów
+ * - S: parsowanie wejścia token po tokenie i przekazywanie kontaktów pojedynczo do odbiorcy
+ *   (całe wejście nigdy nie jest trzymane w pamięci)
+ */
+class ContactImportReader {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader contactReader;
+    private final XmlMapper xmlMapper;
+    private final XMLInputFactory xmlInputFactory;
+
+    ContactImportReader(ObjectMapper objectMapper, XmlMapper xmlMapper) {
+        this.objectMapper = objectMapper;
+        // jak przy bindowaniu @RequestBody: nieznane pola są ignorowane
+        this.contactReader = objectMapper.readerFor(Contact.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.xmlMapper = xmlMapper;
+        this.xmlInputFactory = xmlMapper.getFactory().getXMLInputFactory();
+        // dane z zewnątrz: bez DTD i encji zewnętrznych (XXE)
+        this.xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /** Czyta tablicę JSON kontaktów; zwraca liczbę przeczytanych elementów. */
+    long readJson(InputStream in, Consumer<Contact> sink) throws IOException {
+        long count = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected JSON array of contacts");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Contact contact = contactReader.readValue(parser);
+                sink.accept(contact);
+                count++;
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new JsonParseException(parser, "Expected contact object, got " + token);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Czyta import XML w jednym przebiegu. Kształt rozpoznawany po elemencie głównym:
+     * {@code <contacts>} = format ContactsExportDTO (dzieci {@code <contact>}),
+     * inny korzeń = goła lista (każdy element-dziecko to jeden kontakt).
+     * Zwraca liczbę przeczytanych kontaktów.
+     */
+    long readXml(InputStream in, Consumer<Contact> sink) throws IOException, XMLStreamException {
+        XMLStreamReader xml = xmlInputFactory.createXMLStreamReader(in);
+        try {
+            xml.nextTag();
+            boolean exportShape = "contacts".equals(xml.getLocalName());
+            long count = 0;
+            while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if (exportShape && !"contact".equals(xml.getLocalName())) {
+                    throw new XMLStreamException("Unexpected element <" + xml.getLocalName() + ">", xml.getLocation());
+                }
+                // czyta jeden kontakt i zostawia czytnik na jego END_ELEMENT
+                Contact contact = xmlMapper.readValue(xml, Contact.class);
+                sink.accept(contact);
+                count++;
+            }
+            return count;
+        } finally {
+            xml.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.dto.ImportResult;
+import com.example.contacts.model.Contact;
+import com.example.contacts.repository.ContactRepository;
+import jakarta.persistence.EntityManager;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Import w trybie merge
+ * - S: dopasowanie przychodzących kontaktów do istniejących po kluczu naturalnym
+ *   (znormalizowany email + telefon) i zapis wyłącznie różnicy: INSERT nowych, UPDATE zmienionych,
+ *   DELETE nieobecnych w imporcie; niezmienione wiersze nie są dotykane
+ */
+class ContactMerger {
+
+    private final ContactRepository contactRepository;
+    private final EntityManager entityManager;
+    private final ChunkedContactPersister inserter;
+    private final int chunkSize;
+    // rewizja właściciela dla zmienianych wierszy i tombstone'ów (synchronizacja przyrostowa)
+    private final long changeRevision;
+
+    // klucz naturalny -> istniejące kontakty (w bazie mogą być duplikaty)
+    private final Map<String, Deque<ContactSnapshot>> existingByKey = new HashMap<>();
+    // id istniejącego kontaktu -> nowe wartości
+    private final Map<Long, Contact> updates = new HashMap<>();
+
+    private long unchanged;
+
+    ContactMerger(ContactRepository contactRepository, EntityManager entityManager,
+                  ChunkedContactPersister inserter, int chunkSize, long changeRevision) {
+        this.contactRepository = contactRepository;
+        this.entityManager = entityManager;
+        this.inserter = inserter;
+        this.chunkSize = chunkSize;
+        this.changeRevision = changeRevision;
+    }
+
+    void loadExisting(String ownerUsername) {
+        try (Stream<ContactSnapshot> existing = contactRepository.streamSnapshotsByOwner(ownerUsername)) {
+            existing.forEach(s -> existingByKey
+                    .computeIfAbsent(naturalKey(s.getEmail(), s.getPhone()), k -> new ArrayDeque<>())
+                    .add(s));
+        }
+    }
+
+    void accept(Contact incoming) {
+        Deque<ContactSnapshot> candidates = existingByKey.get(naturalKey(incoming.getEmail(), incoming.getPhone()));
+        ContactSnapshot match = candidates == null ? null : candidates.pollFirst();
+        if (match == null) {
+            inserter.accept(incoming);
+        } else if (sameValues(match, incoming)) {
+            unchanged++;
+        } else {
+            updates.put(match.getId(), incoming);
+        }
+    }
+
+    ImportResult finish() {
+        long inserted = inserter.finish();
+        applyUpdates();
+        long deleted = applyDeletes();
+        return new ImportResult(inserted, updates.size(), deleted, unchanged);
+    }
+
+    private void applyUpdates() {
+        List<Long> ids = new ArrayList<>(updates.keySet());
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> part = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            // jeden SELECT ... IN na porcję, potem paczka UPDATE-ów przy flush
+            for (Contact managed : contactRepository.findAllById(part)) {
+                Contact incoming = updates.get(managed.getId());
+                managed.setFirstName(incoming.getFirstName());
+                managed.setLastName(incoming.getLastName());
+                managed.setEmail(incoming.getEmail());
+                managed.setPhone(incoming.getPhone());
+                managed.setChangeRevision(changeRevision);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    private long applyDeletes() {
+        List<Long> ids = new ArrayList<>();
+        existingByKey.values().forEach(left -> left.forEach(s -> ids.add(s.getId())));
+        Instant now = Instant.now();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> part = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            contactRepository.recordTombstones(part, now, changeRevision);
+            contactRepository.deleteAllByIdInBatch(part);
+        }
+        return ids.size();
+    }
+
+    private static boolean sameValues(ContactSnapshot existing, Contact incoming) {
+        return Objects.equals(existing.getFirstName(), incoming.getFirstName())
+                && Objects.equals(existing.getLastName(), incoming.getLastName())
+                && Objects.equals(existing.getEmail(), incoming.getEmail())
+                && Objects.equals(existing.getPhone(), incoming.getPhone());
+    }
+
+    static String naturalKey(String email, String phone) {
+        String e = email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+        String p = phone == null ? "" : phone.trim();
+        return e + '\n' + p;
+    }
+}
@@ -1,26 +1,77 @@
 package com.example.contacts.service;
 
+import com.example.contacts.dto.ContactChanges;
+import com.example.contacts.dto.ContactListQuery;
+import com.example.contacts.dto.ContactPage;
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.dto.ExportSnapshot;
+import com.example.contacts.dto.ImportResult;
 import com.example.contacts.model.Contact;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 
 /**
 
  * - I: segreguje API operacji na kontaktach
  * - D: kontrolery zależą od tej abstrakcji
+ * - expectedVersion: wersja z If-Match (null = bez warunku); niezgodność -> OptimisticLockingFailureException
  */
 public interface ContactService {
     List<Contact> getAllContacts();
+    ContactPage getContactsPage(String after, Integer limit, ContactListQuery query);
+    // licznik zmian kontaktów widocznych dla zalogowanego (admin: suma wszystkich właścicieli)
+    long getRevision();
+    // synchronizacja przyrostowa; since = token z poprzedniej odpowiedzi (null = pełna lista)
+    ContactChanges getChanges(String since);
     Contact getContact(Long id);
+    // id kontaktów z numerem telefonu (caller ID); numer spoza ^[0-9]{9}$ -> IllegalArgumentException
+    List<Long> findContactIdsByPhone(String phone);
+    // wyszukiwanie w trakcie pisania: prefiks słowa (1-2 znaki) albo podciąg (od 3) w imieniu, nazwisku, emailu, telefonie
+    List<ContactSnapshot> searchContacts(String query, Integer limit);
     Contact addContact(Contact contact);
-    Contact updateContact(Long id, Contact contact);
-    boolean deleteContact(Long id);
+    Contact updateContact(Long id, Contact contact, Long expectedVersion);
+    // wersja kontaktu po zapisie (ETag); null = brak kontaktu
+    Long patchContact(Long id, Map<String, Object> patch, Long expectedVersion);
+    boolean deleteContact(Long id, Long expectedVersion);
+
+    // domyślny porządek (nazwisko, imię) bez filtrów
+    default ContactPage getContactsPage(String after, Integer limit) {
+        return getContactsPage(after, limit, ContactListQuery.defaults());
+    }
+
+    // bez warunku wersji (If-Match nie podany)
+    default Contact updateContact(Long id, Contact contact) {
+        return updateContact(id, contact, null);
+    }
+
+    default Long patchContact(Long id, Map<String, Object> patch) {
+        return patchContact(id, patch, null);
+    }
+
+    default boolean deleteContact(Long id) {
+        return deleteContact(id, null);
+    }
 
     String exportToJson() throws Exception;
+    void exportToJson(OutputStream out) throws IOException;
     String exportToXml() throws Exception;
+    void exportToXml(OutputStream out) throws IOException;
+    // eksport jako gotowe bajty (surowe + gzip) z rewizją odczytaną przed danymi;
+    // null = widok admina albo eksport ponad limit bufora - wtedy exportTo*(OutputStream)
+    ExportSnapshot exportJsonSnapshot() throws IOException;
+    ExportSnapshot exportXmlSnapshot() throws IOException;
     void importFromJson(String json) throws Exception;
     void importFromXml(String xml) throws Exception;
 
     void replaceContacts(List<Contact> contacts);
+    long replaceContactsFromJson(InputStream json) throws IOException;
+    ImportResult mergeContactsFromJson(InputStream json) throws IOException;
     void replaceContactsFromXml(String xml) throws Exception;
+    long replaceContactsFromXml(InputStream xml) throws IOException, XMLStreamException;
+    ImportResult mergeContactsFromXml(InputStream xml) throws IOException, XMLStreamException;
 }
\ No newline at end of file
@@ -1,69 +1,254 @@
 package com.example.contacts.service;
 
-import com.example.contacts.dto.ContactsExportDTO;
-import com.example.contacts.model.AppUser;
+import com.example.contacts.dto.ContactChanges;
+import com.example.contacts.dto.ContactListQuery;
+import com.example.contacts.dto.ContactPage;
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.dto.ExportSnapshot;
+import com.example.contacts.dto.ImportResult;
 import com.example.contacts.model.Contact;
+import com.example.contacts.model.OwnerRevision;
 import com.example.contacts.repository.ContactRepository;
-import com.example.contacts.repository.UserRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.contacts.repository.ContactTombstoneRepository;
+import com.example.contacts.repository.OwnerRevisionRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManager;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
 
  * - S: logika biznesowa dotyczaca kontaktów
- * - D: zależy od abstrakcji repozytoriów (ContactRepository, UserRepository)
+ * - D: zależy od abstrakcji repozytorium (ContactRepository)
+ * - rola i nazwa użytkownika z SecurityContext; właściciel sprawdzany w tym samym zapytaniu co odczyt/usunięcie
+ * - każdy zapis zwiększa licznik zmian właściciela (OwnerRevisionRepository) w tej samej transakcji
+ *   i publikuje ContactChangedEvent dla indeksów w pamięci (stosowane po commit)
  * - O: można rozszerzyć zachowanie przez dekoratory / proxy
  */
 @Service
 public class ContactServiceImpl implements ContactService {
 
     private final ContactRepository contactRepository;
-    private final UserRepository userRepository;
+    private final OwnerRevisionRepository ownerRevisionRepository;
+    private final ContactTombstoneRepository tombstoneRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PhoneIndex phoneIndex;
+    private final SearchIndex searchIndex;
+    private final OwnerContactsCache ownerContactsCache;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final XmlMapper xmlMapper = new XmlMapper();
+    private final ContactExportWriter exportWriter =
+            new ContactExportWriter(objectMapper, xmlMapper.getFactory().getXMLOutputFactory());
+    private final ContactImportReader importReader = new ContactImportReader(objectMapper, xmlMapper);
 
     private final Validator validator;
 
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("firstName", "lastName", "email", "phone");
+
+    @Value("${contacts.page.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${contacts.page.max-size:500}")
+    private int maxPageSize = 500;
+
+    @Value("${contacts.search.default-limit:20}")
+    private int defaultSearchLimit = 20;
+
+    @Value("${contacts.search.max-limit:100}")
+    private int maxSearchLimit = 100;
+
+    @Value("${contacts.import.chunk-size:1000}")
+    private int importChunkSize = 1000;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize = 50;
+
+    // większy eksport nie jest buforowany (ExportSnapshot) - kontroler pisze go strumieniowo
+    @Value("${contacts.export-cache.max-snapshot-bytes:4194304}")
+    private int maxSnapshotBytes = 4 * 1024 * 1024;
+
+    // pełna lista w /changes (reset) - strony tej wielkości
+    @Value("${contacts.sync.page-size:1000}")
+    private int syncPageSize = 1000;
+
     public ContactServiceImpl(ContactRepository contactRepository,
-                              UserRepository userRepository,
-                              Validator validator) {
+                              OwnerRevisionRepository ownerRevisionRepository,
+                              ContactTombstoneRepository tombstoneRepository,
+                              EntityManager entityManager,
+                              Validator validator,
+                              ApplicationEventPublisher eventPublisher,
+                              PhoneIndex phoneIndex,
+                              SearchIndex searchIndex,
+                              OwnerContactsCache ownerContactsCache) {
         this.contactRepository = contactRepository;
-        this.userRepository = userRepository;
+        this.ownerRevisionRepository = ownerRevisionRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.entityManager = entityManager;
         this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.phoneIndex = phoneIndex;
+        this.searchIndex = searchIndex;
+        this.ownerContactsCache = ownerContactsCache;
     }
 
     @Override
     public List<Contact> getAllContacts() {
         String username = getCurrentUsername();
-        AppUser user = userRepository.findByUsername(username).orElseThrow();
-        if ("ROLE_ADMIN".equals(user.getRole())) {
+        if (isAdmin()) {
             return contactRepository.findAll();
         } else {
-            return contactRepository.findByOwnerUsername(username);
+            // lista id z cache właściciela, encje z cache L2 - przy trafieniu bez zapytań do bazy
+            List<Long> ids = ownerContactsCache.get(username, () -> contactRepository.findIdsByOwnerUsername(username));
+            return contactRepository.findAllByIdCached(ids);
+        }
+    }
+
+    @Override
+    public ContactPage getContactsPage(String after, Integer limit, ContactListQuery query) {
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        ContactCursor cursor = after == null || after.isBlank() ? null : ContactCursor.decode(after);
+        if (cursor != null && cursor.getSort() != query.getSort()) {
+            throw new IllegalArgumentException("Cursor does not match sort order");
+        }
+        String owner = isAdmin() ? null : getCurrentUsername();
+
+        // pobieramy o jeden wiersz więcej, żeby wiedzieć czy istnieje następna strona
+        List<Contact> rows = contactRepository.findPage(owner, query, cursor == null ? null : cursor.toAfter(), size + 1);
+
+        if (rows.size() <= size) {
+            return new ContactPage(rows, null);
         }
+        List<Contact> items = new ArrayList<>(rows.subList(0, size));
+        return new ContactPage(items, ContactCursor.of(query.getSort(), items.get(size - 1)).encode());
     }
 
     @Override
     public Contact getContact(Long id) {
-        Contact contact = contactRepository.findById(id).orElse(null);
-        if (contact == null) return null;
-        if (isOwnerOrAdmin(contact)) return contact;
-        throw new RuntimeException("Forbidden");
+        return findVisible(id).orElse(null);
     }
 
+    /**
+     * Wyszukiwanie po numerze z indeksu w pamięci (bez zapytania do bazy); do czasu zbudowania
+     * indeksu przy starcie - zapytanie zastępcze.
+     */
     @Override
+    public List<Long> findContactIdsByPhone(String phone) {
+        if (PhoneTable.parse(phone) < 0) {
+            throw new IllegalArgumentException("Phone must have exactly 9 digits");
+        }
+        String owner = isAdmin() ? null : getCurrentUsername();
+        if (!phoneIndex.isReady()) {
+            return owner == null
+                    ? contactRepository.findIdsByPhone(phone)
+                    : contactRepository.findIdsByOwnerUsernameAndPhone(owner, phone);
+        }
+        return Arrays.stream(phoneIndex.find(owner, phone)).sorted().boxed().toList();
+    }
+
+    /**
+     * Wyszukiwanie z indeksu n-gramów w pamięci (wyniki w kolejności dodania kontaktów).
+     * Do czasu zbudowania indeksu - LIKE w bazie (bez zwijania polskich znaków).
+     */
+    @Override
+    public List<ContactSnapshot> searchContacts(String query, Integer limit) {
+        int size = limit == null || limit <= 0 ? defaultSearchLimit : Math.min(limit, maxSearchLimit);
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        String owner = isAdmin() ? null : getCurrentUsername();
+        if (searchIndex.isReady()) {
+            return searchIndex.search(owner, query, size);
+        }
+        String pattern = "%" + query.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return owner == null
+                ? contactRepository.searchSnapshots(pattern, Limit.of(size))
+                : contactRepository.searchSnapshotsByOwner(owner, pattern, Limit.of(size));
+    }
+
+    /**
+     * Zmiany od tokenu: kontakty zmienione w rewizjach właściciela późniejszych niż token i id usuniętych.
+     * Rewizje rosną w kolejności commitów (OwnerRevisionRepository.lockNextRevision), więc token nie pomija
+     * zapisów transakcji zatwierdzonych po jego wydaniu, także długich importów.
+     * Pełna lista (bez tokenu, token innego użytkownika albo starszy niż kompaktowanie tombstone'ów, widok admina):
+     * strony po contacts.sync.page-size w porządku listy, kolejna strona z kursora keyset zapisanego w tokenie;
+     * reset = true tylko na pierwszej stronie, more = true - wywołać ponownie z tokenem.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ContactChanges getChanges(String since) {
+        SyncToken from = since == null || since.isBlank() ? null : SyncToken.decode(since);
+        String owner = isAdmin() ? null : getCurrentUsername();
+        // rewizja przed odczytem wierszy: zapis zatwierdzony w międzyczasie wróci też w następnej odpowiedzi
+        // (upsert/delete po id są idempotentne)
+        OwnerRevision state = owner == null ? null : ownerRevisionRepository.findById(owner).orElse(null);
+        long current = state == null ? 0 : state.getRevision();
+        boolean valid = from != null && Objects.equals(owner, from.getOwner())
+                && from.getRevision() >= (state == null ? 0 : state.getCompactedRevision());
+
+        if (valid && owner != null && from.getAfter() == null) {
+            List<Contact> upserts = contactRepository
+                    .findByOwnerUsernameAndChangeRevisionGreaterThanOrderByChangeRevisionAscIdAsc(owner, from.getRevision());
+            List<Long> deletes = tombstoneRepository.findDeletedIdsSince(owner, from.getRevision());
+            String token = new SyncToken(owner, Math.max(current, from.getRevision()), null).encode();
+            return new ContactChanges(upserts, deletes, token, false, false);
+        }
+
+        // pełna lista: zmiany w trakcie stronicowania mają rewizję wyższą niż z pierwszej strony,
+        // więc trafią do synchronizacji przyrostowej po ostatniej stronie
+        boolean firstPage = !valid || from.getAfter() == null;
+        long revision = firstPage ? current : from.getRevision();
+        ContactListQuery order = ContactListQuery.defaults();
+        Contact after = firstPage ? null : ContactCursor.decode(from.getAfter()).toAfter();
+        List<Contact> rows = contactRepository.findPage(owner, order, after, syncPageSize + 1);
+        if (rows.size() <= syncPageSize) {
+            return new ContactChanges(rows, List.of(), new SyncToken(owner, revision, null).encode(), firstPage, false);
+        }
+        List<Contact> items = new ArrayList<>(rows.subList(0, syncPageSize));
+        String cursor = ContactCursor.of(order.getSort(), items.get(syncPageSize - 1)).encode();
+        return new ContactChanges(items, List.of(), new SyncToken(owner, revision, cursor).encode(), firstPage, true);
+    }
+
+    @Override
+    public long getRevision() {
+        return isAdmin()
+                ? ownerRevisionRepository.sumRevisions()
+                : ownerRevisionRepository.findRevision(getCurrentUsername()).orElse(0L);
+    }
+
+    @Override
+    @Transactional
     public Contact addContact(Contact contact) {
         var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
         String role = auth.getAuthorities().iterator().next().getAuthority();
@@ -72,83 +257,201 @@ public class ContactServiceImpl implements ContactService {
         }
         contact.setOwnerUsername(auth.getName());
         validateContact(contact);
-        return contactRepository.save(contact);
+        contact.setChangeRevision(ownerRevisionRepository.lockNextRevision(auth.getName()));
+        Contact saved = contactRepository.save(contact);
+        ownerRevisionRepository.bump(auth.getName());
+        eventPublisher.publishEvent(ContactChangedEvent.saved(saved));
+        return saved;
     }
 
     @Override
-    public Contact updateContact(Long id, Contact updated) {
-        return contactRepository.findById(id)
+    @Transactional
+    public Contact updateContact(Long id, Contact updated, Long expectedVersion) {
+        // encja zarządzana w transakcji: SELECT (użytkownik: z warunkiem właściciela, admin: po id z cache L2)
+        // + UPDATE ... WHERE version = ? od razu (saveAndFlush: nowa wersja trafia do zdarzenia);
+        // równoległa zmiana między odczytem a zapisem kończy się OptimisticLockingFailureException
+        return findVisible(id)
                 .map(existing -> {
-                    if (!isOwnerOrAdmin(existing)) throw new RuntimeException("Forbidden");
-
+                    requireVersion(existing, expectedVersion);
                     existing.setFirstName(updated.getFirstName());
                     existing.setLastName(updated.getLastName());
                     existing.setEmail(updated.getEmail());
                     existing.setPhone(updated.getPhone());
 
                     validateContact(existing);
-                    return contactRepository.save(existing);
+                    existing.setChangeRevision(ownerRevisionRepository.lockNextRevision(existing.getOwnerUsername()));
+                    ownerRevisionRepository.bump(existing.getOwnerUsername());
+                    Contact saved = contactRepository.saveAndFlush(existing);
+                    eventPublisher.publishEvent(ContactChangedEvent.saved(saved));
+                    return saved;
                 })
                 .orElse(null);
     }
 
+    /**
+     * JSON Merge Patch (RFC 7396): tylko podane pola, null czyści pole (i nie przejdzie walidacji wymaganych).
+     * Walidowane są wyłącznie zmieniane pola. Zapis jednym UPDATE z warunkiem właściciela i wersji z If-Match,
+     * bez wcześniejszego odczytu kontaktu; nowa wersja z tego samego zapytania. Wcześniej tylko blokada licznika
+     * zmian właściciela (kolejność rewizji dla /changes), admin najpierw odczytuje właściciela.
+     * Dodatkowy SELECT tylko gdy żaden wiersz się nie zmienił: 404/403, konflikt wersji albo wartości równe zapisanym.
+     * @return wersja kontaktu po zapisie (bez zmian, gdy żadne pole nie zmieniło wartości); null gdy kontakt nie istnieje
+     */
+    @Override
+    @Transactional
+    public Long patchContact(Long id, Map<String, Object> patch, Long expectedVersion) {
+        Map<String, String> changes = new LinkedHashMap<>();
+        Set<ConstraintViolation<Contact>> violations = new HashSet<>();
+        patch.forEach((field, value) -> {
+            if (!PATCHABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field cannot be patched: " + field);
+            }
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException("Field must be a string: " + field);
+            }
+            violations.addAll(validator.validateValue(Contact.class, field, value));
+            changes.put(field, (String) value);
+        });
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        String owner = ownerOf(id);
+        if (owner == null) {
+            return null;
+        }
+        long revision = ownerRevisionRepository.lockNextRevision(owner);
+        Long version = contactRepository.updateFields(id, owner, expectedVersion, revision, changes);
+        if (version == null) {
+            return unchangedVersion(id, expectedVersion);
+        }
+        ownerRevisionRepository.bump(owner);
+        eventPublisher.publishEvent(ContactChangedEvent.patched(id, owner, version, changes));
+        return version;
+    }
+
     @Override
-    public boolean deleteContact(Long id) {
-        return contactRepository.findById(id)
-                .map(contact -> {
-                    if (!isOwnerOrAdmin(contact)) throw new RuntimeException("Forbidden");
-                    contactRepository.delete(contact);
-                    return true;
-                }).orElse(false);
+    @Transactional
+    public boolean deleteContact(Long id, Long expectedVersion) {
+        String owner = ownerOf(id);
+        if (owner == null) {
+            return false;
+        }
+        long revision = ownerRevisionRepository.lockNextRevision(owner);
+        // tombstone wycofywany razem z transakcją, jeśli DELETE nie przejdzie (403/412)
+        contactRepository.recordTombstones(List.of(id), Instant.now(), revision);
+        int deleted = contactRepository.deleteMatching(id, ownerFilter(), expectedVersion);
+        if (deleted > 0) {
+            ownerRevisionRepository.bump(owner);
+            eventPublisher.publishEvent(ContactChangedEvent.deleted(id, owner));
+            return true;
+        }
+        return conflictOrMissing(id, expectedVersion);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public String exportToJson() throws Exception {
-        String username = getCurrentUsername();
-        AppUser user = userRepository.findByUsername(username).orElseThrow();
-
-        List<Contact> list = "ROLE_ADMIN".equals(user.getRole())
-                ? contactRepository.findAll()
-                : contactRepository.findByOwnerUsername(username);
-
-        List<Contact> cleaned = list.stream()
-                .map(c -> Contact.builder()
-                        .firstName(c.getFirstName())
-                        .lastName(c.getLastName())
-                        .email(c.getEmail())
-                        .phone(c.getPhone())
-                        .build())
-                .collect(Collectors.toList());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        exportToJson(buffer);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
 
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(cleaned);
+    @Override
+    @Transactional(readOnly = true)
+    public void exportToJson(OutputStream out) throws IOException {
+        // kursor po wynikach + odpinanie encji: w pamięci jest naraz tylko bieżący wiersz
+        try (Stream<Contact> contacts = streamVisibleContacts()) {
+            exportWriter.writeJson(contacts.iterator(), out, entityManager::detach);
+        }
     }
 
     @Override
     public void importFromJson(String json) throws Exception {
-        List<Contact> contacts = objectMapper.readValue(json, new TypeReference<List<Contact>>() {});
-        replaceContacts(contacts);
+        replaceContactsFromJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public String exportToXml() throws Exception {
-        String username = getCurrentUsername();
-        AppUser user = userRepository.findByUsername(username).orElseThrow();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        exportToXml(buffer);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportToXml(OutputStream out) throws IOException {
+        try (Stream<Contact> contacts = streamVisibleContacts()) {
+            exportWriter.writeXml(contacts.iterator(), out, entityManager::detach);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ExportSnapshot exportJsonSnapshot() throws IOException {
+        return exportSnapshot(this::exportToJson);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ExportSnapshot exportXmlSnapshot() throws IOException {
+        return exportSnapshot(this::exportToXml);
+    }
+
+    @FunctionalInterface
+    private interface ExportBody {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // null: widok admina albo eksport większy niż maxSnapshotBytes; w pamięci najwyżej limit bajtów
+    private ExportSnapshot exportSnapshot(ExportBody body) throws IOException {
+        if (isAdmin()) {
+            return null;
+        }
+        // rewizja przed danymi: treść nigdy nie jest starsza niż rewizja zapisana w eksporcie
+        long revision = getRevision();
+        SnapshotBuffer buffer = new SnapshotBuffer(maxSnapshotBytes);
+        try {
+            body.writeTo(buffer);
+        } catch (SnapshotBuffer.LimitExceededException e) {
+            return null;
+        }
+        return ExportSnapshot.of(revision, buffer.toByteArray());
+    }
+
+    // bufor z limitem; przekroczenie przerywa serializację, kursor zamyka try-with-resources w exportTo*
+    private static final class SnapshotBuffer extends ByteArrayOutputStream {
 
-        List<Contact> list = "ROLE_ADMIN".equals(user.getRole())
-                ? contactRepository.findAll()
-                : contactRepository.findByOwnerUsername(username);
+        static final class LimitExceededException extends RuntimeException {
+            LimitExceededException() {
+                super(null, null, false, false);
+            }
+        }
+
+        private final int limit;
+
+        SnapshotBuffer(int limit) {
+            super(Math.min(limit, 8192));
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            ensureCapacity(1);
+            super.write(b);
+        }
 
-        List<Contact> cleaned = list.stream()
-                .map(c -> Contact.builder()
-                        .firstName(c.getFirstName())
-                        .lastName(c.getLastName())
-                        .email(c.getEmail())
-                        .phone(c.getPhone())
-                        .build())
-                .collect(Collectors.toList());
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            ensureCapacity(len);
+            super.write(b, off, len);
+        }
 
-        ContactsExportDTO dto = new ContactsExportDTO(cleaned);
-        return xmlMapper.writerWithDefaultPrettyPrinter().writeValueAsString(dto);
+        private void ensureCapacity(int len) {
+            if (count + len > limit) {
+                throw new LimitExceededException();
+            }
+        }
     }
 
     @Override
@@ -159,69 +462,209 @@ public class ContactServiceImpl implements ContactService {
     @Override
     @Transactional
     public void replaceContacts(List<Contact> contacts) {
-        var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
-        String role = auth.getAuthorities().iterator().next().getAuthority();
-        if ("ROLE_ADMIN".equals(role)) {
-            throw new AccessDeniedException("Admin cannot import contacts");
-        }
-        String username = getCurrentUsername();
+        String username = requireImportingUser();
 
         if (contacts == null) contacts = List.of();
 
         contacts.forEach(c -> {
             c.setOwnerUsername(username);
             c.setId(null);
+            c.setVersion(null);
         });
 
         contacts.forEach(this::validateContact);
 
-        contactRepository.deleteByOwnerUsername(username);
-        contactRepository.saveAll(contacts);
+        long revision = ownerRevisionRepository.lockNextRevision(username);
+        contacts.forEach(c -> c.setChangeRevision(revision));
+        deleteAllOwned(username, revision);
+        ChunkedContactPersister persister = newPersister();
+        contacts.forEach(persister::accept);
+        persister.finish();
+        ownerRevisionRepository.bump(username);
+        eventPublisher.publishEvent(ContactChangedEvent.reloaded(username));
     }
 
     @Override
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
+    public long replaceContactsFromJson(InputStream json) throws IOException {
+        String username = requireImportingUser();
+
+        // błąd parsowania/walidacji w dowolnym miejscu wycofuje całą transakcję (łącznie z usunięciem);
+        // rollbackFor: błąd składni JSON to sprawdzany IOException, domyślnie Spring by go zatwierdził
+        long revision = ownerRevisionRepository.lockNextRevision(username);
+        deleteAllOwned(username, revision);
+        ChunkedContactPersister persister = newPersister();
+        importReader.readJson(json, c -> persister.accept(prepareImported(c, username, revision)));
+        long imported = persister.finish();
+        ownerRevisionRepository.bump(username);
+        eventPublisher.publishEvent(ContactChangedEvent.reloaded(username));
+        return imported;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public ImportResult mergeContactsFromJson(InputStream json) throws IOException {
+        String username = requireImportingUser();
+        // błąd składni w połowie pliku wycofuje zmiany z wcześniejszych porcji (rollbackFor: wyjątki sprawdzane)
+        long revision = ownerRevisionRepository.lockNextRevision(username);
+        ContactMerger merger = newMerger(username, revision);
+        importReader.readJson(json, c -> merger.accept(prepareImported(c, username, revision)));
+        return bumpIfChanged(username, merger.finish());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public void replaceContactsFromXml(String xml) throws Exception {
-        var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
-        String role = auth.getAuthorities().iterator().next().getAuthority();
-        if ("ROLE_ADMIN".equals(role)) {
+        replaceContactsFromXml(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public long replaceContactsFromXml(InputStream xml) throws IOException, XMLStreamException {
+        String username = requireImportingUser();
+
+        // XMLStreamException i błędy Jacksona są sprawdzane - bez rollbackFor usunięcie zostałoby zatwierdzone
+        long revision = ownerRevisionRepository.lockNextRevision(username);
+        deleteAllOwned(username, revision);
+        ChunkedContactPersister persister = newPersister();
+        importReader.readXml(xml, c -> persister.accept(prepareImported(c, username, revision)));
+        long imported = persister.finish();
+        ownerRevisionRepository.bump(username);
+        eventPublisher.publishEvent(ContactChangedEvent.reloaded(username));
+        return imported;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public ImportResult mergeContactsFromXml(InputStream xml) throws IOException, XMLStreamException {
+        String username = requireImportingUser();
+        long revision = ownerRevisionRepository.lockNextRevision(username);
+        ContactMerger merger = newMerger(username, revision);
+        importReader.readXml(xml, c -> merger.accept(prepareImported(c, username, revision)));
+        return bumpIfChanged(username, merger.finish());
+    }
+
+    // HELPERS
+    private Stream<Contact> streamVisibleContacts() {
+        String username = getCurrentUsername();
+        return isAdmin()
+                ? contactRepository.streamAllBy()
+                : contactRepository.streamByOwnerUsername(username);
+    }
+
+    private String requireImportingUser() {
+        if (isAdmin()) {
             throw new AccessDeniedException("Admin cannot import contacts");
         }
-        String username = getCurrentUsername();
+        return getCurrentUsername();
+    }
 
-        List<Contact> contacts;
-        try {
-            ContactsExportDTO dto = xmlMapper.readValue(xml, ContactsExportDTO.class);
-            contacts = dto.getContacts();
-        } catch (Exception ex) {
-            contacts = xmlMapper.readValue(xml, new TypeReference<List<Contact>>() {});
+    private Contact prepareImported(Contact c, String username, long revision) {
+        c.setOwnerUsername(username);
+        c.setId(null);
+        c.setVersion(null);
+        c.setChangeRevision(revision);
+        validateContact(c);
+        return c;
+    }
+
+    private ContactMerger newMerger(String username, long revision) {
+        ContactMerger merger = new ContactMerger(contactRepository, entityManager, newPersister(), importChunkSize, revision);
+        merger.loadExisting(username);
+        return merger;
+    }
+
+    // porcja zaokrąglona w górę do wielokrotności hibernate.jdbc.batch_size,
+    // żeby każdy flush wysyłał pełne paczki INSERT-ów
+    private ChunkedContactPersister newPersister() {
+        int chunkSize = importChunkSize;
+        if (jdbcBatchSize > 0) {
+            chunkSize = Math.max(1, (importChunkSize + jdbcBatchSize - 1) / jdbcBatchSize) * jdbcBatchSize;
         }
+        return new ChunkedContactPersister(contactRepository, entityManager, chunkSize);
+    }
 
-        if (contacts == null) contacts = List.of();
+    private String getCurrentUsername() {
+        return org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication().getName();
+    }
 
-        contacts.forEach(c -> {
-            c.setOwnerUsername(username);
-            c.setId(null);
-        });
+    private boolean isAdmin() {
+        return org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication()
+                .getAuthorities().stream()
+                .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+    }
 
-        contacts.forEach(this::validateContact);
+    // admin widzi wszystko (odczyt po id z cache L2); użytkownik tylko własne - warunek właściciela w zapytaniu
+    private Optional<Contact> findVisible(Long id) {
+        if (isAdmin()) {
+            return contactRepository.findById(id);
+        }
+        Optional<Contact> owned = contactRepository.findByIdAndOwnerUsername(id, getCurrentUsername());
+        if (owned.isEmpty()) {
+            requireMissing(id);
+        }
+        return owned;
+    }
 
+    private void deleteAllOwned(String username, long revision) {
+        contactRepository.recordTombstonesByOwner(username, Instant.now(), revision);
         contactRepository.deleteByOwnerUsername(username);
-        contactRepository.saveAll(contacts);
     }
 
-    // HELPERS
-    private String getCurrentUsername() {
-        return org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication().getName();
+    // właściciel, którego licznik zmian trzeba zwiększyć; admin zmienia cudze kontakty, więc tylko wtedy SELECT
+    private String ownerOf(Long id) {
+        return isAdmin()
+                ? contactRepository.findOwnerUsernameById(id).orElse(null)
+                : getCurrentUsername();
     }
 
-    private boolean isOwnerOrAdmin(Contact c) {
-        String username = getCurrentUsername();
-        if (c.getOwnerUsername().equals(username)) return true;
+    private ImportResult bumpIfChanged(String username, ImportResult result) {
+        if (result.getInserted() + result.getUpdated() + result.getDeleted() > 0) {
+            ownerRevisionRepository.bump(username);
+            eventPublisher.publishEvent(ContactChangedEvent.reloaded(username));
+        }
+        return result;
+    }
+
+    // warunek właściciela dla DELETE; null = admin (bez warunku)
+    private String ownerFilter() {
+        return isAdmin() ? null : getCurrentUsername();
+    }
+
+    private void requireVersion(Contact existing, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+            throw new OptimisticLockingFailureException("Contact " + existing.getId() + " was modified");
+        }
+    }
 
-        return userRepository.findByUsername(username)
-                .map(u -> "ROLE_ADMIN".equals(u.getRole()))
-                .orElse(false);
+    // PATCH bez zmienionego wiersza: brak -> null (404), cudzy -> 403, inna wersja -> konflikt,
+    // w pozostałych przypadkach wartości były równe zapisanym - obecna wersja
+    private Long unchangedVersion(Long id, Long expectedVersion) {
+        return findVisible(id)
+                .map(existing -> {
+                    requireVersion(existing, expectedVersion);
+                    return existing.getVersion();
+                })
+                .orElse(null);
+    }
+
+    // 0 usuniętych wierszy: inna wersja -> konflikt, cudzy -> 403, brak -> false (404)
+    private boolean conflictOrMissing(Long id, Long expectedVersion) {
+        if (expectedVersion != null) {
+            if (findVisible(id).isPresent()) {
+                throw new OptimisticLockingFailureException("Contact " + id + " was modified");
+            }
+            return false;
+        }
+        requireMissing(id);
+        return false;
+    }
+
+    // dodatkowe zapytanie tylko przy chybieniu: cudzy kontakt -> 403, brak kontaktu -> 404
+    private void requireMissing(Long id) {
+        if (contactRepository.existsById(id)) {
+            throw new AccessDeniedException("Forbidden");
+        }
     }
 
     private void validateContact(Contact c) {
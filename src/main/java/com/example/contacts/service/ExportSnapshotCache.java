@@ -0,0 +1,86 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ExportSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Cache gotowych eksportów (surowe bajty + gzip) per właściciel i format
+ * - S: ograniczenie sumą bajtów wpisów, wyrzucane najrzadziej/najdawniej używane (Caffeine)
+ * - wpis ważny tylko dla rewizji, z którą go zapisano; zapis kontaktów właściciela (po commit)
+ *   dodatkowo usuwa jego wpisy, żeby nie zajmowały pamięci
+ * - tylko eksporty pojedynczych właścicieli do contacts.export-cache.max-snapshot-bytes;
+ *   widok admina i większe eksporty są pisane strumieniowo
+ * - osobno znacznik "za duży" per (właściciel, format, rewizja): powtórny eksport tej samej rewizji
+ *   idzie od razu strumieniowo, bez ponownej serializacji do limitu
+ */
+@Component
+public class ExportSnapshotCache implements MeterBinder {
+
+    record Key(String owner, String format) {
+    }
+
+    private final Cache<Key, ExportSnapshot> snapshots;
+    // rewizja, dla której eksport przekroczył limit bufora
+    private final Cache<Key, Long> oversized;
+
+    public ExportSnapshotCache(@Value("${contacts.export-cache.max-bytes:67108864}") long maxBytes,
+                               @Value("${contacts.export-cache.oversize-markers:10000}") long maxMarkers) {
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, ExportSnapshot>weigher((key, snapshot) -> snapshot.size())
+                .recordStats()
+                .build();
+        this.oversized = Caffeine.newBuilder()
+                .maximumSize(maxMarkers)
+                .build();
+    }
+
+    /** Eksport zapisany dla tej samej rewizji albo null. */
+    public ExportSnapshot get(String owner, String format, long revision) {
+        Key key = new Key(owner, format);
+        ExportSnapshot cached = snapshots.getIfPresent(key);
+        if (cached == null || cached.getRevision() == revision) {
+            return cached;
+        }
+        if (cached.getRevision() < revision) {
+            snapshots.asMap().remove(key, cached);
+        }
+        return null;
+    }
+
+    public void put(String owner, String format, ExportSnapshot snapshot) {
+        // starszy eksport (dłużej budowany) nie zastępuje nowszego
+        snapshots.asMap().merge(new Key(owner, format), snapshot,
+                (current, loaded) -> loaded.getRevision() >= current.getRevision() ? loaded : current);
+    }
+
+    /** Czy eksport tej rewizji okazał się większy niż limit bufora. */
+    public boolean isOversized(String owner, String format, long revision) {
+        Long marked = oversized.getIfPresent(new Key(owner, format));
+        return marked != null && marked == revision;
+    }
+
+    public void markOversized(String owner, String format, long revision) {
+        oversized.asMap().merge(new Key(owner, format), revision, Math::max);
+    }
+
+    // fallbackExecution: zapisy wywołane poza transakcją też unieważniają eksporty
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContactChanged(ContactChangedEvent event) {
+        snapshots.asMap().keySet().removeIf(k -> k.owner().equals(event.getOwnerUsername()));
+        oversized.asMap().keySet().removeIf(k -> k.owner().equals(event.getOwnerUsername()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // contacts.exports: cache.gets{result=hit|miss}, cache.evictions, cache.size
+        CaffeineCacheMetrics.monitor(registry, snapshots, "contacts.exports");
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.contacts.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache list kontaktów właściciela (same id, encje z cache L2 Hibernate)
+ * - S: region per właściciel - zmiana kontaktów jednego użytkownika nie unieważnia list pozostałych
+ * - unieważnienie po commit (ContactChangedEvent); licznik generacji właściciela chroni przed wstawieniem
+ *   listy odczytanej z bazy przed commit, a zapisywanej do cache już po unieważnieniu
+ */
+@Component
+public class OwnerContactsCache implements MeterBinder {
+
+    private final Cache<String, List<Long>> ids;
+    private final ConcurrentHashMap<String, Long> generations = new ConcurrentHashMap<>();
+
+    public OwnerContactsCache(@Value("${contacts.cache.owner-lists.size:10000}") long maximumSize,
+                              @Value("${contacts.cache.owner-lists.ttl:PT10M}") Duration ttl) {
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /** Id kontaktów właściciela; przy chybieniu loader (zapytanie do bazy), wynik trafia do cache. */
+    public List<Long> get(String ownerUsername, Supplier<List<Long>> loader) {
+        List<Long> cached = ids.getIfPresent(ownerUsername);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = generations.getOrDefault(ownerUsername, 0L);
+        List<Long> loaded = List.copyOf(loader.get());
+        // compute blokuje klucz: unieważnienie nie wejdzie między porównanie generacji a put
+        generations.compute(ownerUsername, (owner, current) -> {
+            long now = current == null ? 0L : current;
+            if (now == generation) {
+                ids.put(owner, loaded);
+            }
+            return current;
+        });
+        return loaded;
+    }
+
+    // fallbackExecution: zapisy wywołane poza transakcją też unieważniają listę
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContactChanged(ContactChangedEvent event) {
+        if (event.getOwnerUsername() == null) {
+            return;
+        }
+        generations.compute(event.getOwnerUsername(), (owner, current) -> {
+            ids.invalidate(owner);
+            return current == null ? 1L : current + 1;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // contacts.owner-lists: cache.gets{result=hit|miss}, cache.evictions, cache.size
+        CaffeineCacheMetrics.monitor(registry, ids, "contacts.owner-lists");
+    }
+}
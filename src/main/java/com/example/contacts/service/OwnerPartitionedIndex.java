@@ -0,0 +1,155 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.repository.ContactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Wspólna podstawa indeksów kontaktów w pamięci (PhoneIndex, SearchIndex)
+ * - S: osobna struktura T na właściciela pod własną blokadą odczytu/zapisu; budowa z bazy przy starcie,
+ *   potem zdarzenia ContactChangedEvent po commit. Do czasu zbudowania (isReady) serwis pyta bazę.
+ * - przeładowanie właściciela trzyma blokadę zapisu razem z zapytaniem: zdarzenie z transakcji
+ *   zatwierdzonej w tym czasie zostanie zastosowane po nim (operacje muszą być idempotentne)
+ * - zdarzenia po commit mogą przyjść w innej kolejności niż zapisy: partycja pamięta ostatnią zastosowaną
+ *   wersję kontaktu (VersionTable) i pomija starsze zdarzenia; usunięcie jest ostateczne. PATCH nieznanego
+ *   jeszcze kontaktu (jego SAVED nie dotarło) przeładowuje właściciela z bazy.
+ * - O: nowy indeks = build + apply, bez zmian w serwisie
+ */
+public abstract class OwnerPartitionedIndex<T> {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected final ContactRepository contactRepository;
+    private final Map<String, Partition<T>> partitions = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    protected OwnerPartitionedIndex(ContactRepository contactRepository) {
+        this.contactRepository = contactRepository;
+    }
+
+    private static final class Partition<T> {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        T data;
+        VersionTable versions;
+
+        Partition(T data, VersionTable versions) {
+            this.data = data;
+            this.versions = versions;
+        }
+    }
+
+    /** Nowa struktura z aktualnych kontaktów właściciela. */
+    protected abstract T build(List<ContactSnapshot> contacts);
+
+    /** Zmiana pojedynczego kontaktu (SAVED, PATCHED, DELETED); wywoływane pod blokadą zapisu. */
+    protected abstract void apply(T data, ContactChangedEvent event);
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        List<String> owners = contactRepository.findOwnerUsernames();
+        owners.forEach(this::reload);
+        ready = true;
+        log.info("{} built for {} owners in {} ms", getClass().getSimpleName(), owners.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // fallbackExecution: zapisy wywołane poza transakcją też muszą trafić do indeksu
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContactChanged(ContactChangedEvent event) {
+        if (event.getOwnerUsername() == null) {
+            return;
+        }
+        if (event.getKind() == ContactChangedEvent.Kind.RELOADED) {
+            reload(event.getOwnerUsername());
+            return;
+        }
+        Partition<T> partition = partition(event.getOwnerUsername());
+        partition.lock.writeLock().lock();
+        try {
+            long id = event.getContactId();
+            long applied = partition.versions.get(id);
+            if (event.getKind() == ContactChangedEvent.Kind.DELETED) {
+                apply(partition.data, event);
+                partition.versions.put(id, VersionTable.DELETED);
+                return;
+            }
+            long version = event.getVersion() == null ? 0 : event.getVersion();
+            if (applied != VersionTable.ABSENT && version <= applied) {
+                return;
+            }
+            if (applied == VersionTable.ABSENT && event.getKind() == ContactChangedEvent.Kind.PATCHED) {
+                // blokada zapisu jest wielowejściowa - przeładowanie pod tą samą blokadą
+                reload(event.getOwnerUsername());
+                return;
+            }
+            apply(partition.data, event);
+            partition.versions.put(id, version);
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+    }
+
+    void reload(String ownerUsername) {
+        Partition<T> partition = partition(ownerUsername);
+        partition.lock.writeLock().lock();
+        try {
+            List<ContactSnapshot> contacts = contactRepository.findSnapshotsByOwner(ownerUsername);
+            VersionTable versions = new VersionTable(contacts.size());
+            for (ContactSnapshot c : contacts) {
+                versions.put(c.getId(), c.getVersion() == null ? 0 : c.getVersion());
+            }
+            partition.data = build(contacts);
+            partition.versions = versions;
+        } finally {
+            partition.lock.writeLock().unlock();
+        }
+    }
+
+    /** Odczyt struktury właściciela pod blokadą odczytu; brak partycji -> empty. */
+    protected <R> R read(String ownerUsername, Function<T, R> reader, R empty) {
+        Partition<T> partition = partitions.get(ownerUsername);
+        if (partition == null) {
+            return empty;
+        }
+        partition.lock.readLock().lock();
+        try {
+            return reader.apply(partition.data);
+        } finally {
+            partition.lock.readLock().unlock();
+        }
+    }
+
+    /** Odczyt kolejnych partycji (admin); reader zwraca false, żeby przerwać. */
+    protected void readAll(Predicate<T> reader) {
+        for (Partition<T> partition : partitions.values()) {
+            partition.lock.readLock().lock();
+            try {
+                if (!reader.test(partition.data)) {
+                    return;
+                }
+            } finally {
+                partition.lock.readLock().unlock();
+            }
+        }
+    }
+
+    private Partition<T> partition(String ownerUsername) {
+        return partitions.computeIfAbsent(ownerUsername, o -> new Partition<>(build(List.of()), new VersionTable(0)));
+    }
+}
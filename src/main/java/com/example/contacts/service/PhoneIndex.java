@@ -0,0 +1,60 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.repository.ContactRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Odwrotne wyszukiwanie kontaktu po numerze telefonu (caller ID) w pamięci
+ * - S: osobna PhoneTable na właściciela (OwnerPartitionedIndex)
+ */
+@Component
+public class PhoneIndex extends OwnerPartitionedIndex<PhoneTable> {
+
+    private static final long[] NONE = new long[0];
+
+    public PhoneIndex(ContactRepository contactRepository) {
+        super(contactRepository);
+    }
+
+    /** Id kontaktów właściciela z danym numerem; owner null = wszyscy właściciele (admin). */
+    public long[] find(String ownerUsername, String phone) {
+        int key = PhoneTable.parse(phone);
+        if (key < 0) {
+            return NONE;
+        }
+        if (ownerUsername != null) {
+            return read(ownerUsername, table -> table.find(key), NONE);
+        }
+        List<long[]> found = new ArrayList<>();
+        readAll(table -> found.add(table.find(key)));
+        return found.stream().flatMapToLong(Arrays::stream).toArray();
+    }
+
+    @Override
+    protected PhoneTable build(List<ContactSnapshot> contacts) {
+        PhoneTable table = new PhoneTable(contacts.size());
+        for (ContactSnapshot c : contacts) {
+            table.put(c.getId(), PhoneTable.parse(c.getPhone()));
+        }
+        return table;
+    }
+
+    @Override
+    protected void apply(PhoneTable table, ContactChangedEvent event) {
+        switch (event.getKind()) {
+            case SAVED -> table.put(event.getContactId(), PhoneTable.parse(event.getContact().getPhone()));
+            case PATCHED -> {
+                if (event.getChanges().containsKey("phone")) {
+                    table.put(event.getContactId(), PhoneTable.parse(event.getChanges().get("phone")));
+                }
+            }
+            case DELETED -> table.remove(event.getContactId());
+            default -> { }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.contacts.service;
+
+import java.util.Arrays;
+
+/**
+ * Tablica numer telefonu -> id kontaktu na typach prostych (bez boxingu)
+ * - S: adresowanie otwarte z sondowaniem liniowym i usuwaniem przez przesunięcie wstecz (bez tombstone'ów);
+ *   9-cyfrowy numer mieści się w int. Ten sam numer może mieć kilka kontaktów, więc obok jest
+ *   tablica odwrotna id -> numer (usuwanie po samym id, zmiana numeru przy PATCH).
+ * - nie jest bezpieczna wątkowo - synchronizację zapewnia PhoneIndex
+ */
+final class PhoneTable {
+
+    private static final int NO_PHONE = -1;
+    private static final long NO_ID = Long.MIN_VALUE;
+    private static final long[] NONE = new long[0];
+
+    // numer -> id (klucze mogą się powtarzać)
+    private int[] phones;
+    private long[] phoneIds;
+    // id -> numer (klucze unikalne)
+    private long[] ids;
+    private int[] idPhones;
+
+    private int mask;
+    private int size;
+
+    PhoneTable(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, expected) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Numer w formacie ^[0-9]{9}$ jako int albo -1 (nie indeksujemy). */
+    static int parse(String phone) {
+        if (phone == null || phone.length() != 9) {
+            return NO_PHONE;
+        }
+        int value = 0;
+        for (int i = 0; i < 9; i++) {
+            char ch = phone.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return NO_PHONE;
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    /** Ustawia numer kontaktu (zastępuje poprzedni); phone < 0 usuwa kontakt z tablicy. */
+    void put(long id, int phone) {
+        int idSlot = findId(id);
+        if (idSlot >= 0) {
+            if (idPhones[idSlot] == phone) {
+                return;
+            }
+            removePhoneEntry(idPhones[idSlot], id);
+            removeIdSlot(idSlot);
+            size--;
+        }
+        if (phone < 0) {
+            return;
+        }
+        if ((size + 1) * 2 > phones.length) {
+            resize(phones.length * 2);
+        }
+        insertPhone(phone, id);
+        insertId(id, phone);
+        size++;
+    }
+
+    void remove(long id) {
+        put(id, NO_PHONE);
+    }
+
+    /** Id kontaktów z danym numerem (kolejność nieokreślona). */
+    long[] find(int phone) {
+        long[] found = NONE;
+        int n = 0;
+        for (int i = phoneSlot(phone); phones[i] != NO_PHONE; i = (i + 1) & mask) {
+            if (phones[i] == phone) {
+                if (n == found.length) {
+                    found = Arrays.copyOf(found, Math.max(2, n * 2));
+                }
+                found[n++] = phoneIds[i];
+            }
+        }
+        return n == found.length ? found : Arrays.copyOf(found, n);
+    }
+
+    // --- HELPERS ---
+
+    private void allocate(int capacity) {
+        phones = new int[capacity];
+        phoneIds = new long[capacity];
+        ids = new long[capacity];
+        idPhones = new int[capacity];
+        Arrays.fill(phones, NO_PHONE);
+        Arrays.fill(ids, NO_ID);
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = ids;
+        int[] oldPhones = idPhones;
+        allocate(capacity);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != NO_ID) {
+                insertPhone(oldPhones[i], oldIds[i]);
+                insertId(oldIds[i], oldPhones[i]);
+            }
+        }
+    }
+
+    private int phoneSlot(int phone) {
+        int h = phone * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int idSlot(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void insertPhone(int phone, long id) {
+        int i = phoneSlot(phone);
+        while (phones[i] != NO_PHONE) {
+            i = (i + 1) & mask;
+        }
+        phones[i] = phone;
+        phoneIds[i] = id;
+    }
+
+    private void insertId(long id, int phone) {
+        int i = idSlot(id);
+        while (ids[i] != NO_ID) {
+            i = (i + 1) & mask;
+        }
+        ids[i] = id;
+        idPhones[i] = phone;
+    }
+
+    private int findId(long id) {
+        for (int i = idSlot(id); ids[i] != NO_ID; i = (i + 1) & mask) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removePhoneEntry(int phone, long id) {
+        int i = phoneSlot(phone);
+        while (phones[i] != phone || phoneIds[i] != id) {
+            i = (i + 1) & mask;
+        }
+        // przesunięcie wstecz: wpis z dalszej części łańcucha trafia w lukę, jeśli luka leży na jego ścieżce sondowania
+        int gap = i;
+        for (int j = (i + 1) & mask; phones[j] != NO_PHONE; j = (j + 1) & mask) {
+            if (((j - phoneSlot(phones[j])) & mask) >= ((j - gap) & mask)) {
+                phones[gap] = phones[j];
+                phoneIds[gap] = phoneIds[j];
+                gap = j;
+            }
+        }
+        phones[gap] = NO_PHONE;
+    }
+
+    private void removeIdSlot(int i) {
+        int gap = i;
+        for (int j = (i + 1) & mask; ids[j] != NO_ID; j = (j + 1) & mask) {
+            if (((j - idSlot(ids[j])) & mask) >= ((j - gap) & mask)) {
+                ids[gap] = ids[j];
+                idPhones[gap] = idPhones[j];
+                gap = j;
+            }
+        }
+        ids[gap] = NO_ID;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.repository.ContactRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wyszukiwanie kontaktów w trakcie pisania (typeahead) w pamięci
+ * - S: osobna SearchTable (indeks trigramów) na właściciela (OwnerPartitionedIndex)
+ */
+@Component
+public class SearchIndex extends OwnerPartitionedIndex<SearchTable> {
+
+    public SearchIndex(ContactRepository contactRepository) {
+        super(contactRepository);
+    }
+
+    /** Co najwyżej limit kontaktów pasujących do zapytania; owner null = wszyscy właściciele (admin). */
+    public List<ContactSnapshot> search(String ownerUsername, String query, int limit) {
+        List<ContactSnapshot> found = new ArrayList<>();
+        if (ownerUsername != null) {
+            read(ownerUsername, table -> table.search(query, limit, found), false);
+        } else {
+            readAll(table -> table.search(query, limit, found));
+        }
+        return found;
+    }
+
+    @Override
+    protected SearchTable build(List<ContactSnapshot> contacts) {
+        SearchTable table = new SearchTable(contacts.size());
+        contacts.forEach(table::put);
+        return table;
+    }
+
+    @Override
+    protected void apply(SearchTable table, ContactChangedEvent event) {
+        switch (event.getKind()) {
+            case SAVED -> table.put(event.getContact());
+            case PATCHED -> table.patch(event.getContactId(), event.getVersion(), event.getChanges());
+            case DELETED -> table.remove(event.getContactId());
+            default -> { }
+        }
+    }
+}
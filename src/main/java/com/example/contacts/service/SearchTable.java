@@ -0,0 +1,253 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Odwrócony indeks n-gramów kontaktów jednego właściciela
+ * - S: tekst pól ("imię nazwisko" jako jedno pole, email, telefon) znormalizowany do 42-znakowego alfabetu
+ *   (małe litery bez polskich znaków, cyfry, @ . - _ + i spacja), klucz trigramu = 3 x 6 bitów.
+ *   Zapytania od 3 znaków: przecięcie list trigramów (podciąg, także pełne imię i nazwisko "jan kowal");
+ *   1-2 znaki: prefiksy słów.
+ * - listy to posortowane int[] numerów dokumentów; numery rosną, więc dopisywanie zachowuje porządek.
+ *   Zmiana/usunięcie kontaktu tylko unieważnia stary numer, kompaktowanie gdy martwych jest więcej niż żywych.
+ * - nie jest bezpieczna wątkowo - synchronizację zapewnia SearchIndex
+ */
+final class SearchTable {
+
+    private static final int PREFIX_KEY = 1 << 18;
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    private ContactSnapshot[] docs;
+    private String[][] texts;
+    private int nextDoc;
+    private int dead;
+    private final Map<Long, Integer> docByContact = new HashMap<>();
+    private final Map<Integer, Postings> postings = new HashMap<>();
+
+    SearchTable(int expected) {
+        docs = new ContactSnapshot[Math.max(16, expected)];
+        texts = new String[docs.length][];
+    }
+
+    int size() {
+        return docByContact.size();
+    }
+
+    void put(ContactSnapshot contact) {
+        remove(contact.getId());
+        if (nextDoc == docs.length) {
+            docs = Arrays.copyOf(docs, docs.length * 2);
+            texts = Arrays.copyOf(texts, docs.length);
+        }
+        int doc = nextDoc++;
+        docs[doc] = contact;
+        texts[doc] = new String[]{
+                normalize(Objects.toString(contact.getFirstName(), "") + " " + Objects.toString(contact.getLastName(), "")),
+                normalize(contact.getEmail()), normalize(contact.getPhone())
+        };
+        docByContact.put(contact.getId(), doc);
+        for (String text : texts[doc]) {
+            index(text, doc);
+        }
+    }
+
+    /** Zmiana wybranych pól (PATCH); nieznany kontakt jest pomijany. */
+    void patch(Long id, Long version, Map<String, String> changes) {
+        Integer doc = docByContact.get(id);
+        if (doc == null) {
+            return;
+        }
+        ContactSnapshot old = docs[doc];
+        put(new ContactSnapshot(id,
+                changes.getOrDefault("firstName", old.getFirstName()),
+                changes.getOrDefault("lastName", old.getLastName()),
+                changes.getOrDefault("email", old.getEmail()),
+                changes.getOrDefault("phone", old.getPhone()),
+                version));
+    }
+
+    void remove(Long id) {
+        Integer doc = docByContact.remove(id);
+        if (doc == null) {
+            return;
+        }
+        docs[doc] = null;
+        texts[doc] = null;
+        dead++;
+        if (dead >= COMPACT_MIN_DEAD && dead > docByContact.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Dopisuje do out co najwyżej limit kontaktów pasujących do zapytania (w kolejności dodania).
+     * @return false gdy limit został osiągnięty
+     */
+    boolean search(String query, int limit, List<ContactSnapshot> out) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return out.size() < limit;
+        }
+        List<Postings> lists = new ArrayList<>();
+        if (q.length() < 3) {
+            lists.add(postings.get(prefixKey(q, 0)));
+        } else {
+            for (int i = 0; i + 3 <= q.length(); i++) {
+                lists.add(postings.get(trigramKey(q, i)));
+            }
+        }
+        if (lists.contains(null)) {
+            return out.size() < limit;
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        // kandydaci z najkrótszej listy, obecność w pozostałych przez wyszukiwanie binarne
+        Postings shortest = lists.get(0);
+        for (int i = 0; i < shortest.size; i++) {
+            if (out.size() >= limit) {
+                return false;
+            }
+            int doc = shortest.docs[i];
+            if (docs[doc] != null && inAll(lists, doc) && matches(texts[doc], q)) {
+                out.add(docs[doc]);
+            }
+        }
+        return out.size() < limit;
+    }
+
+    // --- normalizacja i klucze ---
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char ch = decomposed.charAt(i);
+            if (Character.getType(ch) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (ch == 'ł') {
+                ch = 'l';
+            }
+            if (symbol(ch) == 0 || ch == ' ') {
+                // dowolny separator -> pojedyncza spacja
+                if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+                    out.append(' ');
+                }
+            } else {
+                out.append(ch);
+            }
+        }
+        int end = out.length();
+        return end > 0 && out.charAt(end - 1) == ' ' ? out.substring(0, end - 1) : out.toString();
+    }
+
+    private static int symbol(char ch) {
+        if (ch >= 'a' && ch <= 'z') return ch - 'a' + 1;
+        if (ch >= '0' && ch <= '9') return ch - '0' + 27;
+        return switch (ch) {
+            case '@' -> 37;
+            case '.' -> 38;
+            case '-' -> 39;
+            case '_' -> 40;
+            case '+' -> 41;
+            case ' ' -> 42;
+            default -> 0;
+        };
+    }
+
+    private static int trigramKey(String text, int i) {
+        return symbol(text.charAt(i)) << 12 | symbol(text.charAt(i + 1)) << 6 | symbol(text.charAt(i + 2));
+    }
+
+    // prefiks słowa: 1 albo 2 znaki (spacja kończy słowo)
+    private static int prefixKey(String text, int i) {
+        int second = i + 1 < text.length() && text.charAt(i + 1) != ' ' ? symbol(text.charAt(i + 1)) : 0;
+        return PREFIX_KEY | symbol(text.charAt(i)) << 6 | second;
+    }
+
+    // --- HELPERS ---
+
+    private void index(String text, int doc) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            add(trigramKey(text, i), doc);
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != ' ' && (i == 0 || text.charAt(i - 1) == ' ')) {
+                add(PREFIX_KEY | symbol(text.charAt(i)) << 6, doc);
+                if (i + 1 < text.length() && text.charAt(i + 1) != ' ') {
+                    add(prefixKey(text, i), doc);
+                }
+            }
+        }
+    }
+
+    private void add(int key, int doc) {
+        postings.computeIfAbsent(key, k -> new Postings()).add(doc);
+    }
+
+    private static boolean inAll(List<Postings> lists, int doc) {
+        for (int i = 1; i < lists.size(); i++) {
+            Postings p = lists.get(i);
+            if (Arrays.binarySearch(p.docs, 0, p.size, doc) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // trigramy dają kandydatów; dokładne sprawdzenie podciągu / prefiksu słowa
+    private static boolean matches(String[] fields, String q) {
+        for (String field : fields) {
+            if (q.length() < 3) {
+                if (field.startsWith(q) || field.contains(" " + q)) {
+                    return true;
+                }
+            } else if (field.contains(q)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compact() {
+        ContactSnapshot[] live = Arrays.stream(docs, 0, nextDoc).filter(c -> c != null).toArray(ContactSnapshot[]::new);
+        docs = new ContactSnapshot[Math.max(16, live.length * 2)];
+        texts = new String[docs.length][];
+        nextDoc = 0;
+        dead = 0;
+        docByContact.clear();
+        postings.clear();
+        for (ContactSnapshot c : live) {
+            put(c);
+        }
+    }
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            // klucze dokumentu dodawane są kolejno, więc powtórzenie może być tylko na końcu
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
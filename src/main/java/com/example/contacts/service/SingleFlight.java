@@ -0,0 +1,73 @@
+package com.example.contacts.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Łączenie współbieżnych identycznych wywołań (single flight)
+ * - S: pierwsze wywołanie z danym kluczem wykonuje operację we własnym wątku, kolejne czekają na jej wynik
+ * - wynik nie jest przechowywany po zakończeniu: wywołanie rozpoczęte później zawsze wykonuje operację od nowa
+ */
+final class SingleFlight<K> {
+
+    @FunctionalInterface
+    interface Call<V, E extends Exception> {
+        V call() throws E;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder joined = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    <V, E extends Exception> V execute(K key, Call<V, E> call) throws E {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> leader = (CompletableFuture<V>) inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            joined.increment();
+            return await(leader);
+        }
+        try {
+            V value = call.call();
+            mine.complete(value);
+            return value;
+        } catch (Throwable e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** Kolejne wywołania z tymi kluczami nie dołączą do trwających operacji (np. po zapisie danych). */
+    void detach(Predicate<K> keys) {
+        inFlight.keySet().removeIf(keys);
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    long joined() {
+        return joined.sum();
+    }
+
+    // ten sam klucz = ta sama operacja, więc wyjątek lidera ma typ E
+    @SuppressWarnings("unchecked")
+    private static <V, E extends Exception> V await(CompletableFuture<V> leader) throws E {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        }
+    }
+}
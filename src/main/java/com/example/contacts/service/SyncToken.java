@@ -0,0 +1,52 @@
+package com.example.contacts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Token synchronizacji przyrostowej
+ * - S: kodowanie/dekodowanie nieprzezroczystego tokenu "since": właściciel, rewizja jego książki adresowej,
+ *   od której liczone są zmiany, i kursor kolejnej strony pełnej listy (null = synchronizacja przyrostowa)
+ */
+@Value
+class SyncToken {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // null = widok admina
+    String owner;
+    long revision;
+    String after;
+
+    String encode() {
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(new Object[]{owner, revision, after});
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode sync token", e);
+        }
+    }
+
+    /** Token albo null dla tokenu w dawnym formacie (chwila zapisu) - klient dostaje pełną listę. */
+    static SyncToken decode(String token) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token);
+            Object[] parts = MAPPER.readValue(new String(json, StandardCharsets.UTF_8), Object[].class);
+            if (parts.length == 2 && parts[0] instanceof Number && parts[1] instanceof Number) {
+                return null;
+            }
+            if (parts.length != 3 || (parts[0] != null && !(parts[0] instanceof String))
+                    || !(parts[1] instanceof Number) || (parts[2] != null && !(parts[2] instanceof String))) {
+                throw new IllegalArgumentException("Invalid sync token");
+            }
+            return new SyncToken((String) parts[0], ((Number) parts[1]).longValue(), (String) parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid sync token", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.contacts.service;
+
+import com.example.contacts.repository.ContactTombstoneRepository;
+import com.example.contacts.repository.OwnerRevisionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Kompaktowanie tombstone'ów w tle
+ * - S: usuwanie śladów usunięć starszych niż retencja; najpierw zapisuje najwyższą usuwaną rewizję
+ *   właściciela (compacted_revision) - klient z tokenem od niej starszym dostaje reset
+ */
+@Component
+public class TombstoneCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(TombstoneCompactor.class);
+
+    private final ContactTombstoneRepository tombstoneRepository;
+    private final OwnerRevisionRepository ownerRevisionRepository;
+    private final Duration retention;
+
+    public TombstoneCompactor(ContactTombstoneRepository tombstoneRepository,
+                              OwnerRevisionRepository ownerRevisionRepository,
+                              @Value("${contacts.sync.tombstone-retention:P30D}") Duration retention) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.ownerRevisionRepository = ownerRevisionRepository;
+        this.retention = retention;
+    }
+
+    @Scheduled(initialDelayString = "${contacts.sync.compaction-interval:PT1H}",
+               fixedDelayString = "${contacts.sync.compaction-interval:PT1H}")
+    @Transactional
+    public int compact() {
+        Instant cutoff = Instant.now().minus(retention);
+        ownerRevisionRepository.markCompacted(cutoff);
+        int removed = tombstoneRepository.deleteCompacted(cutoff);
+        if (removed > 0) {
+            log.info("Removed {} contact tombstones older than {}", removed, retention);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.contacts.service;
+
+/**
+ * Interfejs zmian kont użytkowników (tylko dla administratora)
+ * - I: oddzielony od zbiorczego zakładania kont (UserProvisioningService)
+ * - każda zmiana zwiększa wersję tokenów użytkownika: wcześniej wydane tokeny z ROLE_ADMIN są odrzucane
+ *   od razu (jwt.revocation-check.admin-tokens), pozostałe przy włączonym jwt.revocation-check.enabled
+ *   (bez niego - do wygaśnięcia)
+ */
+public interface UserAccountService {
+
+    // false = brak użytkownika; rola spoza ROLE_USER/ROLE_ADMIN -> IllegalArgumentException
+    boolean changeRole(String username, String role);
+
+    // false = brak użytkownika
+    boolean revokeTokens(String username);
+}
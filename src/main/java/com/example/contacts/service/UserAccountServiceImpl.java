@@ -0,0 +1,50 @@
+package com.example.contacts.service;
+
+import com.example.contacts.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Set;
+
+/**
+ * Implementacja zmian kont użytkowników
+ * - S: zmiana roli i unieważnianie tokenów jednym UPDATE (wersja tokenów + 1)
+ * - publikuje UserTokensRevokedEvent, żeby cache sprawdzania tokenów nie trzymał starej roli/wersji
+ */
+@Service
+public class UserAccountServiceImpl implements UserAccountService {
+
+    private static final Set<String> ALLOWED_ROLES = Set.of("ROLE_USER", "ROLE_ADMIN");
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserAccountServiceImpl(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public boolean changeRole(String username, String role) {
+        if (role == null || !ALLOWED_ROLES.contains(role)) {
+            throw new IllegalArgumentException("Unknown role: " + role);
+        }
+        return revokedIf(username, userRepository.updateRoleAndRevokeTokens(username, role));
+    }
+
+    @Override
+    @Transactional
+    public boolean revokeTokens(String username) {
+        return revokedIf(username, userRepository.incrementTokenVersion(username));
+    }
+
+    private boolean revokedIf(String username, int updated) {
+        if (updated == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(new UserTokensRevokedEvent(username));
+        return true;
+    }
+}
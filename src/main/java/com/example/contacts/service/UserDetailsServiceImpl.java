@@ -2,12 +2,15 @@ package com.example.contacts.service;
 
 import com.example.contacts.model.AppUser;
 import com.example.contacts.repository.UserRepository;
-import org.springframework.security.core.userdetails.User;
+import com.example.contacts.security.AppUserPrincipal;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
 
  * - S: tłumaczy AppUser -> Spring Security UserDetails
@@ -28,9 +31,10 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         AppUser user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-        return User.withUsername(user.getUsername())
-                .password(user.getPassword())
-                .roles(user.getRole().replace("ROLE_", "")) // ROLE_USER -> USER
-                .build();
+        // wersja w principalu: AuthController wydaje token bez ponownego findByUsername
+        return new AppUserPrincipal(user.getUsername(),
+                user.getPassword(),
+                List.of(new SimpleGrantedAuthority(user.getRole())),
+                user.getTokenVersion());
     }
 }
\ No newline at end of file
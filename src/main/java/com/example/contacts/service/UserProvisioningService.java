@@ -0,0 +1,18 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.BulkProvisioningReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interfejs zbiorczego zakładania kont (tylko dla administratora)
+ * - I: oddzielony od ContactService i AuthController
+ * - całe żądanie w jednej transakcji: uszkodzone wejście (składnia) wycofuje wszystkie konta z tego żądania
+ */
+public interface UserProvisioningService {
+
+    BulkProvisioningReport provisionFromJson(InputStream in) throws IOException;
+
+    BulkProvisioningReport provisionFromCsv(InputStream in) throws IOException;
+}
@@ -0,0 +1,158 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.BulkProvisioningReport;
+import com.example.contacts.dto.BulkUserResult;
+import com.example.contacts.dto.BulkUserRow;
+import com.example.contacts.model.AppUser;
+import com.example.contacts.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Implementacja zbiorczego zakładania kont
+ * - S: wiersze czytane strumieniowo i przetwarzane porcjami po chunkSize:
+ *   jedno zapytanie IN o istniejące nazwy, równoległe hashowanie haseł we własnej ForkJoinPool
+ *   (BCrypt nie blokuje wspólnej puli), saveAll + flush + clear (INSERT-y batchowane dzięki sekwencji users_seq).
+ *   Całość w jednej transakcji - wyścig z równoległą rejestracją tej samej nazwy kończy się błędem unikalności.
+ */
+@Service
+public class UserProvisioningServiceImpl implements UserProvisioningService {
+
+    static final String CREATED = "CREATED";
+    static final String EXISTS = "EXISTS";
+    static final String DUPLICATE = "DUPLICATE";
+    static final String INVALID = "INVALID";
+
+    private static final String DEFAULT_ROLE = "ROLE_USER";
+    private static final Set<String> ALLOWED_ROLES = Set.of("ROLE_USER", "ROLE_ADMIN");
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final EntityManager entityManager;
+    private final ForkJoinPool hashingPool;
+    private final UserRowReader rowReader = new UserRowReader(new ObjectMapper());
+
+    @Value("${users.bulk.chunk-size:500}")
+    int chunkSize = 500;
+
+    public UserProvisioningServiceImpl(UserRepository userRepository,
+                                       PasswordEncoder passwordEncoder,
+                                       EntityManager entityManager,
+                                       @Value("${users.bulk.hashing-parallelism:0}") int parallelism) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.entityManager = entityManager;
+        // 0 = wszystkie rdzenie
+        this.hashingPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    // rollbackFor: błąd składni JSON (sprawdzany IOException) po pierwszej porcji nie może zostawić założonych kont
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public BulkProvisioningReport provisionFromJson(InputStream in) throws IOException {
+        Batch batch = new Batch();
+        rowReader.readJson(in, batch::accept);
+        return batch.finish();
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public BulkProvisioningReport provisionFromCsv(InputStream in) throws IOException {
+        Batch batch = new Batch();
+        rowReader.readCsv(in, batch::accept);
+        return batch.finish();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashingPool.shutdown();
+    }
+
+    private record Pending(long row, BulkUserRow user, String role) {
+    }
+
+    /** Stan jednego żądania: bufor porcji, nazwy już widziane w wejściu i wyniki. */
+    private class Batch {
+        private final List<Pending> chunk = new ArrayList<>();
+        private final Set<String> seen = new HashSet<>();
+        private final List<BulkUserResult> results = new ArrayList<>();
+        private long row;
+        private long created;
+
+        void accept(BulkUserRow user) {
+            row++;
+            String username = user.getUsername() == null ? null : user.getUsername().trim();
+            String role = user.getRole() == null || user.getRole().isBlank() ? DEFAULT_ROLE : user.getRole().trim();
+            if (username == null || username.isEmpty()) {
+                results.add(new BulkUserResult(row, username, INVALID, "Username is required"));
+            } else if (user.getPassword() == null || user.getPassword().isEmpty()) {
+                results.add(new BulkUserResult(row, username, INVALID, "Password is required"));
+            } else if (!ALLOWED_ROLES.contains(role)) {
+                results.add(new BulkUserResult(row, username, INVALID, "Unknown role: " + role));
+            } else if (!seen.add(username)) {
+                results.add(new BulkUserResult(row, username, DUPLICATE, "Username repeated in input"));
+            } else {
+                user.setUsername(username);
+                chunk.add(new Pending(row, user, role));
+                if (chunk.size() >= chunkSize) {
+                    flushChunk();
+                }
+            }
+        }
+
+        BulkProvisioningReport finish() {
+            if (!chunk.isEmpty()) {
+                flushChunk();
+            }
+            results.sort(Comparator.comparingLong(BulkUserResult::getRow));
+            return new BulkProvisioningReport(created, results.size() - created, results);
+        }
+
+        private void flushChunk() {
+            Set<String> existing = userRepository.findExistingUsernames(
+                    chunk.stream().map(p -> p.user().getUsername()).toList());
+
+            List<Pending> toCreate = new ArrayList<>(chunk.size());
+            for (Pending p : chunk) {
+                if (existing.contains(p.user().getUsername())) {
+                    results.add(new BulkUserResult(p.row(), p.user().getUsername(), EXISTS, "Username already exists"));
+                } else {
+                    toCreate.add(p);
+                }
+            }
+
+            // BCrypt jest CPU-bound: porcja hashowana równolegle, kolejność zachowana przez toList()
+            List<AppUser> users = hashingPool.submit(() -> toCreate.parallelStream()
+                    .map(p -> AppUser.builder()
+                            .username(p.user().getUsername())
+                            .password(passwordEncoder.encode(p.user().getPassword()))
+                            .role(p.role())
+                            .build())
+                    .toList()).join();
+
+            userRepository.saveAll(users);
+            entityManager.flush();
+            entityManager.clear();
+
+            for (Pending p : toCreate) {
+                results.add(new BulkUserResult(p.row(), p.user().getUsername(), CREATED, null));
+            }
+            created += toCreate.size();
+            chunk.clear();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.BulkUserRow;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Strumieniowy odczyt użytkowników do zbiorczego zakładania kont
+ * - S: JSON (tablica obiektów) albo CSV z nagłówkiem username,password[,role]; wiersze przekazywane pojedynczo
+ */
+class UserRowReader {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader rowReader;
+
+    UserRowReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.rowReader = objectMapper.readerFor(BulkUserRow.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    void readJson(InputStream in, Consumer<BulkUserRow> sink) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected JSON array of users");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                sink.accept(rowReader.readValue(parser));
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new JsonParseException(parser, "Expected user object, got " + token);
+            }
+        }
+    }
+
+    /**
+     * CSV (RFC 4180: pola w cudzysłowach, "" = cudzysłów, pole w cudzysłowach może zawierać
+     * znak nowej linii - zapisywany jako \n). Kolejność kolumn z nagłówka;
+     * wymagane username i password, role opcjonalne. Puste linie są pomijane.
+     */
+    void readCsv(InputStream in, Consumer<BulkUserRow> sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String headerLine = readRecord(reader);
+        if (headerLine == null) {
+            return;
+        }
+        // nazwy kolumn porównywane bez wielkości liter i spacji (BOM z Excela usuwany)
+        List<String> header = parseLine(headerLine.replace("\uFEFF", "")).stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int username = header.indexOf("username");
+        int password = header.indexOf("password");
+        int role = header.indexOf("role");
+        if (username < 0 || password < 0) {
+            throw new IllegalArgumentException("CSV header must contain username and password");
+        }
+        String line;
+        while ((line = readRecord(reader)) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = parseLine(line);
+            sink.accept(new BulkUserRow(field(fields, username), field(fields, password), field(fields, role)));
+        }
+    }
+
+    // rekord = linia, a przy nieparzystej liczbie cudzysłowów (otwarte pole) także kolejne linie
+    private static String readRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        StringBuilder record = new StringBuilder(line);
+        int quotes = quoteCount(line);
+        while (quotes % 2 != 0) {
+            String next = reader.readLine();
+            if (next == null) {
+                throw new IllegalArgumentException("Unterminated quoted field in CSV record");
+            }
+            record.append('\n').append(next);
+            quotes += quoteCount(next);
+        }
+        return record.toString();
+    }
+
+    private static int quoteCount(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    current.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field in CSV line");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
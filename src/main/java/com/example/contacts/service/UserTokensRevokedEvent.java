@@ -0,0 +1,12 @@
+package com.example.contacts.service;
+
+import lombok.Value;
+
+/**
+ * Zdarzenie po zwiększeniu wersji tokenów użytkownika (UserAccountServiceImpl)
+ * - S: po commit TokenRevocationChecker usuwa wpis użytkownika, więc stare tokeny są odrzucane od razu, nie po TTL
+ */
+@Value
+public class UserTokensRevokedEvent {
+    String username;
+}
@@ -0,0 +1,84 @@
+package com.example.contacts.service;
+
+import java.util.Arrays;
+
+/**
+ * Tablica id kontaktu -> ostatnia zastosowana wersja na typach prostych (bez boxingu)
+ * - S: adresowanie otwarte z sondowaniem liniowym; wpisy nie są usuwane - usunięty kontakt dostaje
+ *   wersję DELETED, żeby spóźnione zdarzenie zapisu go nie przywróciło (id nie są używane ponownie).
+ *   Przeładowanie właściciela zaczyna od nowej tablicy.
+ * - nie jest bezpieczna wątkowo - synchronizację zapewnia OwnerPartitionedIndex
+ */
+final class VersionTable {
+
+    static final long ABSENT = -1;
+    static final long DELETED = Long.MAX_VALUE;
+    private static final long NO_ID = Long.MIN_VALUE;
+
+    private long[] ids;
+    private long[] versions;
+    private int mask;
+    private int size;
+
+    VersionTable(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, expected) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /** Wersja kontaktu albo ABSENT. */
+    long get(long id) {
+        for (int i = slot(id); ids[i] != NO_ID; i = (i + 1) & mask) {
+            if (ids[i] == id) {
+                return versions[i];
+            }
+        }
+        return ABSENT;
+    }
+
+    void put(long id, long version) {
+        int i = slot(id);
+        while (ids[i] != NO_ID) {
+            if (ids[i] == id) {
+                versions[i] = version;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        ids[i] = id;
+        versions[i] = version;
+        size++;
+        if (size * 2 > ids.length) {
+            resize(ids.length * 2);
+        }
+    }
+
+    // --- HELPERS ---
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        versions = new long[capacity];
+        Arrays.fill(ids, NO_ID);
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = ids;
+        long[] oldVersions = versions;
+        allocate(capacity);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != NO_ID) {
+                int j = slot(oldIds[i]);
+                while (ids[j] != NO_ID) {
+                    j = (j + 1) & mask;
+                }
+                ids[j] = oldIds[i];
+                versions[j] = oldVersions[i];
+            }
+        }
+    }
+
+    private int slot(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
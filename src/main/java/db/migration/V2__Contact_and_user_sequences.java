@@ -0,0 +1,40 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Sekwencje dla identyfikatorów kontaktów i użytkowników (zamiast IDENTITY, które wyłącza batchowanie INSERT-ów)
+ * - start liczony z istniejących danych: optymalizator "pooled" Hibernate traktuje pobraną wartość
+ *   jako górną granicę puli (value - allocationSize, value], więc sekwencja musi startować od max(id) + allocationSize
+ * - INCREMENT BY musi być równe allocationSize z @SequenceGenerator
+ */
+public class V2__Contact_and_user_sequences extends BaseJavaMigration {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        createSequence(connection, "contacts_seq", "contacts");
+        createSequence(connection, "users_seq", "users");
+    }
+
+    private void createSequence(Connection connection, String sequence, String table) throws SQLException {
+        long maxId;
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            maxId = rs.getLong(1);
+        }
+        long start = maxId == 0 ? 1 : maxId + ALLOCATION_SIZE;
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE SEQUENCE " + sequence + " START WITH " + start + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package db.migration;
+
+import com.example.contacts.model.ContactSortKeys;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Uzupełnienie kluczy sortowania (V8) dla istniejących kontaktów
+ * - S: klucze liczy Collator w Javie, więc migracja nie może być czystym SQL
+ */
+public class V9__Backfill_contact_sort_keys extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement select = connection.createStatement();
+             ResultSet rows = select.executeQuery("SELECT id, first_name, last_name, email FROM contacts");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE contacts SET first_name_key = ?, last_name_key = ?, email_domain = ? WHERE id = ?")) {
+            int pending = 0;
+            while (rows.next()) {
+                update.setBytes(1, ContactSortKeys.key(rows.getString("first_name")));
+                update.setBytes(2, ContactSortKeys.key(rows.getString("last_name")));
+                update.setString(3, ContactSortKeys.emailDomain(rows.getString("email")));
+                update.setLong(4, rows.getLong("id"));
+                update.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        }
+    }
+}
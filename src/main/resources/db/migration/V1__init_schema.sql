@@ -0,0 +1,18 @@
+-- Schemat wyjściowy (taki, jaki tworzyło spring.jpa.hibernate.ddl-auto=update).
+-- Istniejące bazy dostają baseline na tej wersji (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) UNIQUE,
+    password VARCHAR(255),
+    role     VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS contacts (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name     VARCHAR(100),
+    last_name      VARCHAR(100),
+    email          VARCHAR(200),
+    phone          VARCHAR(255),
+    owner_username VARCHAR(255) NOT NULL
+);
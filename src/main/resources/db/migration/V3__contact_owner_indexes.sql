@@ -0,0 +1,7 @@
+-- Indeksy pod zapytania ograniczone do właściciela:
+--  * lista / stronicowanie keyset / eksport: WHERE owner_username = ? ORDER BY last_name, first_name, id
+--  * usuwanie przy imporcie: WHERE owner_username = ?
+--  * wyszukanie kontaktu po emailu w ramach właściciela: WHERE owner_username = ? AND email = ?
+
+CREATE INDEX IF NOT EXISTS idx_contacts_owner_name ON contacts (owner_username, last_name, first_name, id);
+CREATE INDEX IF NOT EXISTS idx_contacts_owner_email ON contacts (owner_username, email);
@@ -0,0 +1,4 @@
+-- Wersja użytkownika zapisywana w tokenie JWT (claim "uv"); zwiększenie unieważnia wydane tokeny
+-- (sprawdzane, gdy jwt.revocation-check.enabled=true).
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version INT DEFAULT 0 NOT NULL;
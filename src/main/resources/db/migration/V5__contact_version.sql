@@ -0,0 +1,3 @@
+-- Wersja kontaktu dla optymistycznej kontroli współbieżności (@Version, ETag)
+
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,7 @@
+-- Licznik zmian książki adresowej właściciela (słaby ETag listy i eksportów).
+-- Brak wiersza = rewizja 0; każdy zapis kontaktów zwiększa licznik w tej samej transakcji.
+
+CREATE TABLE IF NOT EXISTS owner_revisions (
+    owner_username VARCHAR(255) NOT NULL PRIMARY KEY,
+    revision BIGINT NOT NULL
+);
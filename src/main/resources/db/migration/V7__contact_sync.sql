@@ -0,0 +1,24 @@
+-- Synchronizacja przyrostowa: rewizja właściciela zapisana przy każdej zmianie wiersza i tombstone'y
+-- usuniętych kontaktów. Zapisy jednego właściciela blokują jego wiersz w owner_revisions od początku
+-- transakcji, więc kolejność rewizji = kolejność commitów (token nie pomija zapisów długich transakcji)
+
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS created_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS change_revision BIGINT DEFAULT 0 NOT NULL;
+
+-- GET /api/contacts/changes: WHERE owner_username = ? AND change_revision > ? ORDER BY change_revision, id
+CREATE INDEX IF NOT EXISTS idx_contacts_owner_change ON contacts (owner_username, change_revision, id);
+
+-- id kontaktów nie są używane ponownie (sekwencja), więc contact_id wystarcza jako klucz
+CREATE TABLE IF NOT EXISTS contact_tombstones (
+    contact_id BIGINT NOT NULL PRIMARY KEY,
+    owner_username VARCHAR(255) NOT NULL,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    change_revision BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_tombstones_owner_change ON contact_tombstones (owner_username, change_revision);
+CREATE INDEX IF NOT EXISTS idx_tombstones_deleted ON contact_tombstones (deleted_at);
+
+-- najwyższa rewizja usuniętych (kompaktowanych) tombstone'ów: starszy token -> reset
+ALTER TABLE owner_revisions ADD COLUMN IF NOT EXISTS compacted_revision BIGINT DEFAULT 0 NOT NULL;
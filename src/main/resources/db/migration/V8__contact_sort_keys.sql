@@ -0,0 +1,11 @@
+-- Sortowanie listy wg polskiej kolacji: bajty CollationKey liczone w aplikacji (ContactSortKeys),
+-- wartości dla istniejących wierszy uzupełnia migracja V9 (Java)
+
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS last_name_key VARBINARY(1024);
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS first_name_key VARBINARY(1024);
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS email_domain VARCHAR(200);
+
+-- GET /api/contacts?sort=lastName|firstName|emailDomain: WHERE owner_username = ? ORDER BY <klucze>, id
+CREATE INDEX IF NOT EXISTS idx_contacts_owner_last_key ON contacts (owner_username, last_name_key, first_name_key, id);
+CREATE INDEX IF NOT EXISTS idx_contacts_owner_first_key ON contacts (owner_username, first_name_key, last_name_key, id);
+CREATE INDEX IF NOT EXISTS idx_contacts_owner_domain ON contacts (owner_username, email_domain, last_name_key, first_name_key, id);
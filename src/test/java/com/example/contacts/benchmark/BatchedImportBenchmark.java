@@ -0,0 +1,11 @@
+package com.example.contacts.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+// konfiguracja z application.properties: batch_size=50, order_inserts, order_updates
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bench-batched;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50"
+})
+class BatchedImportBenchmark extends ImportBenchmark {
+}
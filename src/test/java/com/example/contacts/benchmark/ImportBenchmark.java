@@ -0,0 +1,89 @@
+package com.example.contacts.benchmark;
+
+import com.example.contacts.ContactsApplication;
+import com.example.contacts.TestSecurityUtils;
+import com.example.contacts.service.ContactService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pomiar importu contacts.benchmark.rows kontaktów (domyślnie 100 000) przez replaceContactsFromJson
+ * - wariant z batchowaniem JDBC (BatchedImportBenchmark) i bez (UnbatchedImportBenchmark),
+ *   każdy na własnej bazie H2 w pamięci; uruchamiane tylko przez ./gradlew benchmark (tag "benchmark")
+ * - każdy przebieg importuje do nowego właściciela (same INSERT-y), pierwszy jest rozgrzewką (JIT, pula połączeń);
+ *   wynik: najlepszy czas z contacts.benchmark.runs przebiegów i liczba przygotowanych instrukcji JDBC
+ */
+@Tag("benchmark")
+@SpringBootTest(classes = ContactsApplication.class, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+abstract class ImportBenchmark {
+
+    @Autowired
+    ContactService contactService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    int batchSize;
+
+    @Value("${contacts.benchmark.rows:100000}")
+    int rows;
+
+    @Value("${contacts.benchmark.runs:3}")
+    int runs;
+
+    @AfterEach
+    void tearDown() {
+        TestSecurityUtils.clear();
+    }
+
+    @Test
+    void replaceContactsFromJson() throws Exception {
+        byte[] body = contactsJson(rows);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        importAs("bench-warmup", body);
+
+        long bestNanos = Long.MAX_VALUE;
+        long statements = 0;
+        for (int run = 0; run < runs; run++) {
+            statistics.clear();
+            long started = System.nanoTime();
+            assertThat(importAs("bench-" + run, body)).isEqualTo(rows);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - started);
+            statements = statistics.getPrepareStatementCount();
+        }
+        System.out.printf("import benchmark: batch_size=%d rows=%d best=%d ms (%.0f rows/s) jdbc statements=%d%n",
+                batchSize, rows, bestNanos / 1_000_000, rows * 1e9 / bestNanos, statements);
+    }
+
+    private long importAs(String owner, byte[] body) throws Exception {
+        TestSecurityUtils.setAuthentication(owner, "ROLE_USER");
+        return contactService.replaceContactsFromJson(new ByteArrayInputStream(body));
+    }
+
+    private static byte[] contactsJson(int rows) {
+        StringBuilder json = new StringBuilder(rows * 100).append('[');
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"firstName\":\"Imie").append(i)
+                    .append("\",\"lastName\":\"Nazwisko").append(i % 1000)
+                    .append("\",\"email\":\"k").append(i).append("@bench.pl")
+                    .append("\",\"phone\":\"").append(600_000_000 + i).append("\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.contacts.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+// domyślna konfiguracja: żądania na puli wątków platformowych Tomcata (server.tomcat.threads.max=200)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:bench-platform;DB_CLOSE_DELAY=-1")
+class PlatformThreadsLoadBenchmark extends RequestLoadBenchmark {
+
+    @Override
+    String mode() {
+        return "platform";
+    }
+}
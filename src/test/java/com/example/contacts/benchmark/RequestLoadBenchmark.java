@@ -0,0 +1,198 @@
+package com.example.contacts.benchmark;
+
+import com.example.contacts.ContactsApplication;
+import com.example.contacts.TestSecurityUtils;
+import com.example.contacts.model.AppUser;
+import com.example.contacts.repository.UserRepository;
+import com.example.contacts.service.ContactService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Obciążenie istniejących endpointów przy obsłudze żądań na wątkach platformowych i wirtualnych
+ * - PlatformThreadsLoadBenchmark (domyślna konfiguracja) i VirtualThreadsLoadBenchmark (profil "virtual", Java 21);
+ *   ta sama pula połączeń Hikari w obu, więc różni się tylko model wątków Tomcata/@Async
+ * - contacts.benchmark.concurrency klientów (domyślnie 400, ponad 200 wątków Tomcata) wysyła żądania bez przerw
+ *   przez contacts.benchmark.seconds na endpoint, po krótkiej rozgrzewce; wynik: żądania/s, p50/p99, błędy (nie 2xx)
+ * - uruchamiane tylko przez ./gradlew benchmark -PjavaVersion=21 (tag "benchmark"); wariant wirtualny pomijany na 17
+ */
+@Tag("benchmark")
+@SpringBootTest(classes = ContactsApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.hikari.maximum-pool-size=20")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+abstract class RequestLoadBenchmark {
+
+    private static final int CONTACTS = 1000;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Autowired
+    ContactService contactService;
+
+    @Value("${contacts.benchmark.concurrency:400}")
+    int concurrency;
+
+    @Value("${contacts.benchmark.seconds:10}")
+    int seconds;
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+    HttpClient client;
+    String token;
+
+    abstract String mode();
+
+    @BeforeAll
+    void setup() throws Exception {
+        userRepository.save(AppUser.builder().username("loaduser").password(passwordEncoder.encode("pass")).role("ROLE_USER").build());
+        TestSecurityUtils.setAuthentication("loaduser", "ROLE_USER");
+        try {
+            contactService.replaceContactsFromJson(new ByteArrayInputStream(contactsJson().getBytes(StandardCharsets.UTF_8)));
+        } finally {
+            TestSecurityUtils.clear();
+        }
+        client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(8))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpResponse<String> login = client.send(loginRequest(), HttpResponse.BodyHandlers.ofString());
+        token = objectMapper.readTree(login.body()).get("token").asText();
+    }
+
+    // strona listy (JDBC, keyset); identyczne równoczesne odczyty łączy CoalescingContactService - jak w działającej aplikacji
+    @Test
+    void contactsPage() throws Exception {
+        measure("GET /api/contacts?limit=50", () -> get("/api/contacts?limit=50"));
+    }
+
+    // pełna lista do synchronizacji (bez tokenu): odczyt rewizji + strona do contacts.sync.page-size wierszy
+    @Test
+    void contactsChanges() throws Exception {
+        measure("GET /api/contacts/changes", () -> get("/api/contacts/changes"));
+    }
+
+    // BCrypt na osobnej puli (auth.hashing.threads); pełna kolejka -> 503, liczone jako błąd
+    @Test
+    void authLogin() throws Exception {
+        measure("POST /auth/login", this::loginRequest);
+    }
+
+    private void measure(String endpoint, Supplier<HttpRequest> request) throws Exception {
+        run(request, Duration.ofSeconds(Math.max(1, seconds / 5)));
+        Result result = run(request, Duration.ofSeconds(seconds));
+        long[] latencies = result.latencies();
+        Arrays.sort(latencies);
+        System.out.printf("load benchmark: threads=%s endpoint=\"%s\" clients=%d requests=%d (%.0f req/s) "
+                        + "p50=%.1f ms p99=%.1f ms errors=%d%n",
+                mode(), endpoint, concurrency, latencies.length, latencies.length / (double) seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), result.errors());
+        assertThat(latencies).isNotEmpty();
+    }
+
+    // concurrency klientów, każdy wysyła kolejne żądanie zaraz po odpowiedzi
+    private Result run(Supplier<HttpRequest> request, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int n = 0;
+                    long errors = 0;
+                    while (System.nanoTime() < deadline) {
+                        long started = System.nanoTime();
+                        int status = client.send(request.get(), HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status >= 300) {
+                            errors++;
+                        }
+                        if (n == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, n * 2);
+                        }
+                        latencies[n++] = System.nanoTime() - started;
+                    }
+                    return new Result(Arrays.copyOf(latencies, n), errors);
+                }));
+            }
+            List<long[]> all = new ArrayList<>();
+            long errors = 0;
+            for (Future<Result> future : futures) {
+                all.add(future.get().latencies());
+                errors += future.get().errors();
+            }
+            return new Result(all.stream().flatMapToLong(Arrays::stream).toArray(), errors);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest loginRequest() {
+        try {
+            String body = objectMapper.writeValueAsString(Map.of("username", "loaduser", "password", "pass"));
+            return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/auth/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * p)] / 1e6;
+    }
+
+    private static String contactsJson() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < CONTACTS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"firstName\":\"Imie").append(i).append("\",\"lastName\":\"Nazwisko").append(i)
+                    .append("\",\"email\":\"l").append(i).append("@load.pl\",\"phone\":\"").append(700_000_000 + i).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+}
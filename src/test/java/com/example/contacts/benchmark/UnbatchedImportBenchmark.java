@@ -0,0 +1,11 @@
+package com.example.contacts.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+// punkt odniesienia: każdy INSERT osobno (id nadal z sekwencji, więc bez dodatkowego odczytu klucza jak przy IDENTITY)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bench-unbatched;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=0"
+})
+class UnbatchedImportBenchmark extends ImportBenchmark {
+}
@@ -0,0 +1,18 @@
+package com.example.contacts.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+// profil "virtual" (application-virtual.properties): wątek wirtualny na żądanie; wymaga -PjavaVersion=21
+@ActiveProfiles("virtual")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:bench-virtual;DB_CLOSE_DELAY=-1")
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadsLoadBenchmark extends RequestLoadBenchmark {
+
+    @Override
+    String mode() {
+        return "virtual";
+    }
+}
@@ -6,13 +6,18 @@ import com.example.contacts.dto.LoginResponse;
 import com.example.contacts.dto.RegisterRequest;
 import com.example.contacts.model.AppUser;
 import com.example.contacts.repository.UserRepository;
+import com.example.contacts.security.AppUserPrincipal;
+import com.example.contacts.security.HashingCapacityExceededException;
 import com.example.contacts.security.JwtService;
+import com.example.contacts.security.PasswordHashingExecutor;
 import org.junit.jupiter.api.*;
 import org.mockito.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -32,6 +37,9 @@ class AuthControllerTest {
     @Mock
     JwtService jwtService;
 
+    @Spy
+    PasswordHashingExecutor hashingExecutor = new PasswordHashingExecutor(1, 4, 1);
+
     @InjectMocks
     AuthController authController;
 
@@ -45,6 +53,7 @@ class AuthControllerTest {
     @AfterEach
     void tearDown() throws Exception {
         mocks.close();
+        hashingExecutor.shutdown();
     }
 
     // 1. register success
@@ -81,14 +90,16 @@ class AuthControllerTest {
         req.setUsername("john");
         req.setPassword("pass");
 
-        when(authManager.authenticate(any())).thenReturn(null);
-        AppUser user = AppUser.builder().username("john").password("enc").role("ROLE_USER").build();
-        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user));
-        when(jwtService.generateToken(any())).thenReturn("tok");
+        AppUserPrincipal principal = new AppUserPrincipal("john", "enc", List.of(new SimpleGrantedAuthority("ROLE_USER")), 2);
+        when(authManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        when(jwtService.generateToken(principal, 2)).thenReturn("tok");
 
         ResponseEntity<?> res = authController.login(req);
         assertThat(res.getStatusCodeValue()).isEqualTo(200);
         assertThat(((LoginResponse) res.getBody()).getToken()).isEqualTo("tok");
+        // token z principala - bez drugiego odczytu użytkownika
+        verify(userRepository, never()).findByUsername(any());
     }
 
     // 4. login bad credentials
@@ -130,4 +141,18 @@ class AuthControllerTest {
         verify(userRepository).save(cap.capture());
         assertThat(cap.getValue().getRole()).isEqualTo("ROLE_USER");
     }
-}
\ No newline at end of file
+
+    // 7. pełna kolejka haszowania -> 503 + Retry-After, bez uwierzytelniania
+    @Test
+    void login_busyReturns503() {
+        LoginRequest req = new LoginRequest();
+        req.setUsername("john");
+        req.setPassword("pass");
+        doThrow(new HashingCapacityExceededException(3)).when(hashingExecutor).call(any());
+
+        ResponseEntity<?> res = authController.login(req);
+        assertThat(res.getStatusCodeValue()).isEqualTo(503);
+        assertThat(res.getHeaders().getFirst("Retry-After")).isEqualTo("3");
+        verifyNoInteractions(authManager);
+    }
+}
@@ -1,13 +1,29 @@
 package com.example.contacts.controller;
 
+import com.example.contacts.dto.ContactListQuery;
+import com.example.contacts.dto.ContactPage;
+import com.example.contacts.dto.ContactSort;
+import com.example.contacts.dto.ExportSnapshot;
+import com.example.contacts.dto.ImportResult;
 import com.example.contacts.model.Contact;
 import com.example.contacts.service.ContactService;
+import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.*;
 import org.mockito.*;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,10 +50,19 @@ class ContactControllerTest {
 
     // 1. getAll
     @Test
-    void getAll_returnsList() {
-        when(contactService.getAllContacts()).thenReturn(List.of(new Contact()));
-        var res = contactController.getAll();
-        assertThat(res).hasSize(1);
+    void getAll_returnsPage() {
+        when(contactService.getContactsPage(null, null, ContactListQuery.defaults())).thenReturn(new ContactPage(List.of(new Contact()), "abc"));
+        var res = contactController.getAll(null, null, null, null, null, null, null);
+        assertThat(res.getBody().getItems()).hasSize(1);
+        assertThat(res.getBody().getNext()).isEqualTo("abc");
+    }
+
+    // 1b. getAll — niepoprawny kursor -> 400
+    @Test
+    void getAll_invalidCursor() {
+        when(contactService.getContactsPage("zly", 10, ContactListQuery.defaults())).thenThrow(new IllegalArgumentException("Invalid cursor"));
+        var res = contactController.getAll("zly", 10, null, null, null, null, null);
+        assertThat(res.getStatusCodeValue()).isEqualTo(400);
     }
 
     // 2. getOne found
@@ -45,7 +70,7 @@ class ContactControllerTest {
     void getOne_found() {
         Contact c = Contact.builder().id(1L).build();
         when(contactService.getContact(1L)).thenReturn(c);
-        ResponseEntity<Contact> res = contactController.getOne(1L);
+        ResponseEntity<Contact> res = contactController.getOne(1L, null);
         assertThat(res.getStatusCodeValue()).isEqualTo(200);
         assertThat(res.getBody()).isEqualTo(c);
     }
@@ -54,7 +79,7 @@ class ContactControllerTest {
     @Test
     void getOne_notFound() {
         when(contactService.getContact(2L)).thenReturn(null);
-        ResponseEntity<Contact> res = contactController.getOne(2L);
+        ResponseEntity<Contact> res = contactController.getOne(2L, null);
         assertThat(res.getStatusCodeValue()).isEqualTo(404);
     }
 
@@ -68,21 +93,169 @@ class ContactControllerTest {
         assertThat(res.getBody().getId()).isEqualTo(5L);
     }
 
-    // 5. exportJson returns string
+    // 5. exportJson — gotowe bajty eksportu, ETag z rewizji eksportu
     @Test
-    void exportJson_returnsString() throws Exception {
-        when(contactService.exportToJson()).thenReturn("[]");
-        String json = contactController.exportJson();
-        assertThat(json).isEqualTo("[]");
+    void exportJson_returnsSnapshotBytes() throws Exception {
+        when(contactService.getRevision()).thenReturn(3L);
+        when(contactService.exportJsonSnapshot()).thenReturn(ExportSnapshot.of(4L, "[]".getBytes(StandardCharsets.UTF_8)));
+
+        var res = contactController.exportJson(null, null);
+        assertThat(res.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(res.getHeaders().getETag()).isEqualTo("W/\"4\"");
+        assertThat(res.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(new String((byte[]) res.getBody(), StandardCharsets.UTF_8)).isEqualTo("[]");
     }
 
     // 6. importJson delegates and returns ok
     @Test
     void importJson_delegates() throws Exception {
-        List<Contact> list = List.of(Contact.builder().firstName("A").lastName("B").email("a@b").phone("123456789").build());
-        doNothing().when(contactService).replaceContacts(list);
-        ResponseEntity<?> res = contactController.importJson(list);
+        var body = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+        when(contactService.replaceContactsFromJson(body)).thenReturn(0L);
+        ResponseEntity<?> res = contactController.importJson(body, "replace");
+        assertThat(res.getStatusCodeValue()).isEqualTo(200);
+        verify(contactService).replaceContactsFromJson(body);
+    }
+
+    // 7. importJson — błąd walidacji -> 400
+    @Test
+    void importJson_invalidContactIsBadRequest() throws Exception {
+        var body = new ByteArrayInputStream("[{}]".getBytes(StandardCharsets.UTF_8));
+        when(contactService.replaceContactsFromJson(body)).thenThrow(new ConstraintViolationException("invalid", Set.of()));
+        ResponseEntity<?> res = contactController.importJson(body, "replace");
+        assertThat(res.getStatusCodeValue()).isEqualTo(400);
+    }
+
+    // 8. importJson mode=merge zwraca liczniki
+    @Test
+    void importJson_mergeReturnsCounts() throws Exception {
+        var body = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+        when(contactService.mergeContactsFromJson(body)).thenReturn(new ImportResult(1, 2, 3, 4));
+        ResponseEntity<?> res = contactController.importJson(body, "merge");
         assertThat(res.getStatusCodeValue()).isEqualTo(200);
-        verify(contactService).replaceContacts(list);
+        assertThat(((ImportResult) res.getBody()).getUnchanged()).isEqualTo(4);
+        verify(contactService, never()).replaceContactsFromJson(any());
+    }
+
+    // 9. nieznany tryb importu -> 400
+    @Test
+    void importJson_unknownMode() throws Exception {
+        var body = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+        ResponseEntity<?> res = contactController.importJson(body, "append");
+        assertThat(res.getStatusCodeValue()).isEqualTo(400);
+    }
+
+    // 10. patch — 204 z ETag wersji zwróconej przez serwis / 404 / 400
+    @Test
+    void patch_statusFromService() {
+        when(contactService.patchContact(1L, Map.of("phone", "111222333"), null)).thenReturn(7L);
+        when(contactService.patchContact(2L, Map.of("phone", "111222333"), null)).thenReturn(null);
+        when(contactService.patchContact(3L, Map.of("id", "5"), null)).thenThrow(new IllegalArgumentException("Field cannot be patched: id"));
+
+        ResponseEntity<?> patched = contactController.patch(1L, Map.of("phone", "111222333"), null);
+        assertThat(patched.getStatusCodeValue()).isEqualTo(204);
+        assertThat(patched.getHeaders().getETag()).isEqualTo("\"7\"");
+        assertThat(contactController.patch(2L, Map.of("phone", "111222333"), null).getStatusCodeValue()).isEqualTo(404);
+        assertThat(contactController.patch(3L, Map.of("id", "5"), null).getStatusCodeValue()).isEqualTo(400);
+    }
+
+    // 11. getOne — ETag z wersji, If-None-Match z tą samą wersją -> 304
+    @Test
+    void getOne_etagAndNotModified() {
+        Contact c = Contact.builder().id(1L).version(4L).build();
+        when(contactService.getContact(1L)).thenReturn(c);
+
+        assertThat(contactController.getOne(1L, null).getHeaders().getETag()).isEqualTo("\"4\"");
+        assertThat(contactController.getOne(1L, "\"4\"").getStatusCodeValue()).isEqualTo(304);
+        assertThat(contactController.getOne(1L, "W/\"4\"").getStatusCodeValue()).isEqualTo(304);
+        assertThat(contactController.getOne(1L, "\"3\"").getStatusCodeValue()).isEqualTo(200);
+    }
+
+    // 12. update — If-Match przekazany jako wersja, konflikt -> 412
+    @Test
+    void update_ifMatchMismatchIsPreconditionFailed() {
+        Contact body = Contact.builder().firstName("A").build();
+        when(contactService.updateContact(1L, body, 2L)).thenThrow(new OptimisticLockingFailureException("modified"));
+
+        assertThat(contactController.update(1L, body, "\"2\"").getStatusCodeValue()).isEqualTo(412);
+    }
+
+    // 13. delete — niepoprawny If-Match nie pasuje do żadnej wersji
+    @Test
+    void delete_malformedIfMatchNeverMatches() {
+        when(contactService.deleteContact(1L, ContactETags.NO_MATCH)).thenThrow(new OptimisticLockingFailureException("modified"));
+
+        assertThat(contactController.delete(1L, "abc").getStatusCodeValue()).isEqualTo(412);
+        verify(contactService).deleteContact(1L, ContactETags.NO_MATCH);
+    }
+
+    // 14. lista/eksport — If-None-Match z aktualną rewizją -> 304 bez odczytu kontaktów
+    @Test
+    void collectionNotModifiedSkipsRead() throws Exception {
+        when(contactService.getRevision()).thenReturn(7L);
+
+        assertThat(contactController.getAll(null, null, null, null, null, null, "W/\"7\"").getStatusCodeValue()).isEqualTo(304);
+        assertThat(contactController.exportJson("W/\"7\"", "gzip").getStatusCodeValue()).isEqualTo(304);
+        assertThat(contactController.exportXml("W/\"7\"", null).getStatusCodeValue()).isEqualTo(304);
+        verify(contactService, never()).getContactsPage(any(), any(), any());
+        verify(contactService, never()).exportJsonSnapshot();
+        verify(contactService, never()).exportXmlSnapshot();
+    }
+
+    // 15. lista — inna rewizja -> 200 ze słabym ETag
+    @Test
+    void collectionChangedReturnsWeakEtag() {
+        when(contactService.getRevision()).thenReturn(8L);
+        when(contactService.getContactsPage(null, null, ContactListQuery.defaults())).thenReturn(new ContactPage(List.of(), null));
+
+        var res = contactController.getAll(null, null, null, null, null, null, "W/\"7\"");
+        assertThat(res.getStatusCodeValue()).isEqualTo(200);
+        assertThat(res.getHeaders().getETag()).isEqualTo("W/\"8\"");
+    }
+
+    // 16. getAll — porządek i filtry przekazane do serwisu, nieznany porządek -> 400
+    @Test
+    void getAll_sortAndFilters() {
+        var query = ContactListQuery.builder().sort(ContactSort.EMAIL_DOMAIN).lastName("Ż").domain("firma.pl").build();
+        when(contactService.getContactsPage(null, 20, query)).thenReturn(new ContactPage(List.of(), null));
+
+        assertThat(contactController.getAll(null, 20, "emailDomain", "Ż", null, "firma.pl", null).getStatusCodeValue()).isEqualTo(200);
+        assertThat(contactController.getAll(null, 20, "phone", null, null, null, null).getStatusCodeValue()).isEqualTo(400);
+    }
+
+    // 17. eksport — Accept-Encoding: gzip -> bajty skompresowane wcześniej, Content-Encoding i Vary
+    @Test
+    void exportXml_gzipClientGetsPrecompressedBytes() throws Exception {
+        ExportSnapshot export = ExportSnapshot.of(2L, "<contacts/>".getBytes(StandardCharsets.UTF_8));
+        when(contactService.exportXmlSnapshot()).thenReturn(export);
+
+        var res = contactController.exportXml(null, "br, gzip;q=0.8");
+        assertThat(res.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(res.getHeaders().getVary()).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(res.getBody()).isSameAs(export.getGzip());
+        try (var in = new GZIPInputStream(new ByteArrayInputStream((byte[]) res.getBody()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("<contacts/>");
+        }
+
+        assertThat(ContactController.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(ContactController.acceptsGzip("identity, *;q=0.5")).isTrue();
+        assertThat(ContactController.acceptsGzip("deflate")).isFalse();
+    }
+
+    // 18. eksport bez gotowych bajtów (widok admina, ponad limit bufora) -> treść strumieniowa, ETag z rewizji
+    @Test
+    void exportJson_streamsWhenNoSnapshot() throws Exception {
+        when(contactService.getRevision()).thenReturn(9L);
+        when(contactService.exportJsonSnapshot()).thenReturn(null);
+        doAnswer(inv -> {
+            inv.<OutputStream>getArgument(0).write("[]".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(contactService).exportToJson(any(OutputStream.class));
+
+        var res = contactController.exportJson(null, "gzip");
+        assertThat(res.getHeaders().getETag()).isEqualTo("W/\"9\"");
+        assertThat(res.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) res.getBody()).writeTo(out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("[]");
     }
-}
\ No newline at end of file
+}
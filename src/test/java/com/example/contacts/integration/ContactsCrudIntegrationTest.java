@@ -4,6 +4,7 @@ import com.example.contacts.ContactsApplication;
 import com.example.contacts.model.AppUser;
 import com.example.contacts.model.Contact;
 import com.example.contacts.repository.ContactRepository;
+import com.example.contacts.repository.OwnerRevisionRepository;
 import com.example.contacts.repository.UserRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.*;
@@ -15,8 +16,11 @@ import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -37,6 +41,9 @@ class ContactsCrudIntegrationTest {
     @Autowired
     ContactRepository contactRepository;
 
+    @Autowired
+    OwnerRevisionRepository ownerRevisionRepository;
+
     @Autowired
     PasswordEncoder passwordEncoder;
 
@@ -111,4 +118,255 @@ class ContactsCrudIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
-}
\ No newline at end of file
+
+    // 6. export json — gotowe bajty; zapis przez API zmienia rewizję, więc eksport zawiera nowy kontakt
+    @Test
+    void exportJsonContainsNewContact() throws Exception {
+        Contact c = Contact.builder().firstName("E").lastName("X").email("e@x").phone("123456789").build();
+        mockMvc.perform(post("/api/contacts")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(c)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/contacts/export/json")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$[?(@.lastName == 'X')]").exists());
+    }
+
+    // 7. patch — zmienia tylko przesłane pole
+    @Test
+    void patchContactChangesOnlyGivenField() throws Exception {
+        Contact saved = contactRepository.save(Contact.builder().firstName("P").lastName("Q").email("p@q").phone("123456789").ownerUsername("cruduser").build());
+        mockMvc.perform(patch("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"phone\":\"987654321\"}"))
+                .andExpect(status().isNoContent());
+
+        Contact after = contactRepository.findById(saved.getId()).orElseThrow();
+        Assertions.assertEquals("987654321", after.getPhone());
+        Assertions.assertEquals("P", after.getFirstName());
+    }
+
+    // 8. ETag / If-Match — nieaktualna wersja -> 412, aktualna -> 204, If-None-Match -> 304, cudzy kontakt -> 403
+    @Test
+    void conditionalRequestsUseVersion() throws Exception {
+        Contact saved = contactRepository.save(Contact.builder().firstName("V").lastName("W").email("v@w").phone("123456789").ownerUsername("cruduser").build());
+        String etag = mockMvc.perform(get("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", etag)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"firstName\":\"V2\"}"))
+                .andExpect(status().isNoContent());
+
+        // UPDATE z warunkiem wersji bez wiersza -> 412; cudzy kontakt -> 403
+        mockMvc.perform(patch("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", etag)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"firstName\":\"V3\"}"))
+                .andExpect(status().isPreconditionFailed());
+        Contact foreign = contactRepository.save(Contact.builder().firstName("F").lastName("G").email("f@g").phone("123456789").ownerUsername("someoneelse").build());
+        mockMvc.perform(patch("/api/contacts/" + foreign.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"firstName\":\"X\"}"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(delete("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", etag))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    // 9. lista — 304 dopóki nic się nie zmieniło, nowy ETag po zapisie
+    @Test
+    void listEtagChangesOnWrite() throws Exception {
+        String etag = mockMvc.perform(get("/api/contacts")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/contacts")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        Contact c = Contact.builder().firstName("R").lastName("S").email("r@s").phone("123456789").build();
+        mockMvc.perform(post("/api/contacts")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(c)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/contacts")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    // 10. synchronizacja przyrostowa — usunięty kontakt pojawia się w "deletes"
+    @Test
+    void changesReportDeletedContact() throws Exception {
+        Contact saved = contactRepository.save(Contact.builder().firstName("Z").lastName("Sync").email("z@s").phone("123456789").ownerUsername("cruduser").build());
+        String resp = mockMvc.perform(get("/api/contacts/changes")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(true))
+                .andReturn().getResponse().getContentAsString();
+        String since = objectMapper.readTree(resp).get("token").asText();
+
+        mockMvc.perform(delete("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/contacts/changes").param("since", since)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(false))
+                .andExpect(jsonPath("$.deletes[?(@ == " + saved.getId() + ")]").exists());
+    }
+
+    // 11. lista wg polskiej kolacji, filtr domeny i kolejna strona z kursora
+    @Test
+    void listSortedByPolishCollation() throws Exception {
+        for (String lastName : List.of("Żak", "Zając", "Śliwa", "Sowa", "Łukasiewicz", "Lis")) {
+            Contact c = Contact.builder().firstName("P").lastName(lastName).email("p@pl-sort.test").phone("123456789").build();
+            mockMvc.perform(post("/api/contacts")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(c)))
+                    .andExpect(status().isOk());
+        }
+
+        String resp = mockMvc.perform(get("/api/contacts").param("domain", "pl-sort.test").param("limit", "3")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].lastName").value(contains("Lis", "Łukasiewicz", "Sowa")))
+                .andReturn().getResponse().getContentAsString();
+        String next = objectMapper.readTree(resp).get("next").asText();
+
+        mockMvc.perform(get("/api/contacts").param("domain", "pl-sort.test").param("limit", "3").param("after", next)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].lastName").value(contains("Śliwa", "Zając", "Żak")));
+
+        mockMvc.perform(get("/api/contacts").param("sort", "firstName").param("after", next)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+    }
+
+    // 12. import JSON (replace) ucięty w połowie -> 400, wcześniejsze kontakty i rewizja zostają (rollback)
+    @Test
+    void truncatedJsonReplaceImportRollsBack() throws Exception {
+        createContact("Rollback");
+        int contactsBefore = contactRepository.findByOwnerUsername("cruduser").size();
+        long revisionBefore = ownerRevisionRepository.findRevision("cruduser").orElse(0L);
+
+        mockMvc.perform(post("/api/contacts/import/json")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TRUNCATED_JSON))
+                .andExpect(status().isBadRequest());
+
+        assertThat(contactRepository.findByOwnerUsername("cruduser")).hasSize(contactsBefore)
+                .extracting(Contact::getLastName).contains("Rollback");
+        assertThat(ownerRevisionRepository.findRevision("cruduser").orElse(0L)).isEqualTo(revisionBefore);
+    }
+
+    // 13. import XML (replace) ucięty w połowie -> 400, wcześniejsze kontakty i rewizja zostają (rollback)
+    @Test
+    void truncatedXmlReplaceImportRollsBack() throws Exception {
+        createContact("RollbackXml");
+        int contactsBefore = contactRepository.findByOwnerUsername("cruduser").size();
+        long revisionBefore = ownerRevisionRepository.findRevision("cruduser").orElse(0L);
+
+        mockMvc.perform(post("/api/contacts/import/xml")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content(TRUNCATED_XML))
+                .andExpect(status().isBadRequest());
+
+        assertThat(contactRepository.findByOwnerUsername("cruduser")).hasSize(contactsBefore)
+                .extracting(Contact::getLastName).contains("RollbackXml");
+        assertThat(ownerRevisionRepository.findRevision("cruduser").orElse(0L)).isEqualTo(revisionBefore);
+    }
+
+    // 14. import merge (JSON i XML) ucięty w połowie -> 400, bez zmian z wcześniejszej części pliku
+    @Test
+    void truncatedMergeImportRollsBack() throws Exception {
+        createContact("RollbackMerge");
+        int contactsBefore = contactRepository.findByOwnerUsername("cruduser").size();
+        long revisionBefore = ownerRevisionRepository.findRevision("cruduser").orElse(0L);
+
+        mockMvc.perform(post("/api/contacts/import/json").param("mode", "merge")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TRUNCATED_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/contacts/import/xml").param("mode", "merge")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content(TRUNCATED_XML))
+                .andExpect(status().isBadRequest());
+
+        assertThat(contactRepository.findByOwnerUsername("cruduser")).hasSize(contactsBefore)
+                .extracting(Contact::getLastName).contains("RollbackMerge").doesNotContain("Nowy");
+        assertThat(ownerRevisionRepository.findRevision("cruduser").orElse(0L)).isEqualTo(revisionBefore);
+    }
+
+    // 15. PATCH — ETag z wersji zapisanej w bazie; PATCH z tą samą wartością nie zmienia wersji ani rewizji
+    @Test
+    void patchEtagMatchesStoredVersion() throws Exception {
+        Contact saved = contactRepository.save(Contact.builder().firstName("E").lastName("Tag").email("e@t").phone("123456789").ownerUsername("cruduser").build());
+        String patched = mockMvc.perform(patch("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"phone\":\"987654321\"}"))
+                .andExpect(status().isNoContent())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(header().string("ETag", patched));
+        long revision = ownerRevisionRepository.findRevision("cruduser").orElseThrow();
+
+        mockMvc.perform(patch("/api/contacts/" + saved.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", patched)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"phone\":\"987654321\",\"firstName\":\"E\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", patched));
+        assertThat(contactRepository.findById(saved.getId()).orElseThrow().getVersion()).isEqualTo(saved.getVersion() + 1);
+        assertThat(ownerRevisionRepository.findRevision("cruduser")).contains(revision);
+    }
+
+    private static final String TRUNCATED_XML = "<contacts><contact><firstName>A</firstName><lastName>Nowy</lastName>"
+            + "<email>a@b.pl</email><phone>123456789</phone></contact><contact><firstName>B";
+
+    private static final String TRUNCATED_JSON =
+            "[{\"firstName\":\"A\",\"lastName\":\"Nowy\",\"email\":\"a@b.pl\",\"phone\":\"123456789\"},{\"firstName\":";
+
+    private void createContact(String lastName) throws Exception {
+        Contact c = Contact.builder().firstName("R").lastName(lastName).email("r@r.pl").phone("123456789").build();
+        mockMvc.perform(post("/api/contacts")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(c)))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.contacts.repository;
+
+import com.example.contacts.model.ContactSortKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Sprawdza (EXPLAIN w H2), że gorące zapytania po właścicielu korzystają z indeksów z migracji V3/V7/V8,
+ * a nie z pełnego skanu tabeli.
+ */
+@DataJpaTest
+class ContactRepositoryIndexTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void data() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String owner = "owner" + (i % 10);
+            String firstName = "Imie" + i;
+            String lastName = "Nazwisko" + (i % 37);
+            rows.add(new Object[]{i + 1L, firstName, lastName, "user" + i + "@example" + (i % 7) + ".com", "123456789", owner,
+                    ContactSortKeys.key(lastName), ContactSortKeys.key(firstName), "example" + (i % 7) + ".com"});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO contacts (id, first_name, last_name, email, phone, owner_username, last_name_key, first_name_key, email_domain) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                rows);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class)).toUpperCase();
+    }
+
+    // 1. lista właściciela posortowana po nazwisku/imieniu - indeks (owner, last_name, first_name, id)
+    @Test
+    void ownerListingUsesNameIndex() {
+        String plan = plan("SELECT * FROM contacts WHERE owner_username = 'owner1' ORDER BY last_name, first_name, id");
+        assertThat(plan).contains("IDX_CONTACTS_OWNER_NAME");
+    }
+
+    // 2. kolejna strona keyset
+    @Test
+    void keysetPageUsesNameIndex() {
+        String plan = plan("SELECT * FROM contacts WHERE owner_username = 'owner1' "
+                + "AND (last_name > 'Nazwisko5' OR (last_name = 'Nazwisko5' AND first_name > 'Imie5') "
+                + "OR (last_name = 'Nazwisko5' AND first_name = 'Imie5' AND id > 6)) "
+                + "ORDER BY last_name, first_name, id");
+        assertThat(plan).contains("IDX_CONTACTS_OWNER_NAME");
+    }
+
+    // 3. usuwanie wszystkich kontaktów właściciela (import replace)
+    @Test
+    void ownerDeleteUsesOwnerIndex() {
+        String plan = plan("DELETE FROM contacts WHERE owner_username = 'owner1'");
+        assertThat(plan).containsAnyOf("IDX_CONTACTS_OWNER_NAME", "IDX_CONTACTS_OWNER_EMAIL");
+    }
+
+    // 4. wyszukanie po emailu w ramach właściciela
+    @Test
+    void ownerEmailLookupUsesEmailIndex() {
+        String plan = plan("SELECT id FROM contacts WHERE owner_username = 'owner1' AND email = 'user1@example1.com'");
+        assertThat(plan).contains("IDX_CONTACTS_OWNER_EMAIL");
+    }
+
+    // 5. synchronizacja przyrostowa - indeks (owner, change_revision, id)
+    @Test
+    void changesSinceUsesChangeRevisionIndex() {
+        String plan = plan("SELECT * FROM contacts WHERE owner_username = 'owner1' "
+                + "AND change_revision > 3 ORDER BY change_revision, id");
+        assertThat(plan).contains("IDX_CONTACTS_OWNER_CHANGE");
+    }
+
+    // 6. lista wg kluczy kolacji (V8) - kolejna strona keyset bez sortowania w pamięci
+    @Test
+    void collatedKeysetPageUsesSortKeyIndex() {
+        String plan = plan("SELECT * FROM contacts WHERE owner_username = 'owner1' "
+                + "AND (last_name_key > X'0102' OR (last_name_key = X'0102' AND first_name_key > X'0304') "
+                + "OR (last_name_key = X'0102' AND first_name_key = X'0304' AND id > 6)) "
+                + "ORDER BY last_name_key, first_name_key, id");
+        assertThat(plan).contains("IDX_CONTACTS_OWNER_LAST_KEY");
+    }
+
+    // 7. filtr domeny posortowany po domenie i nazwisku
+    @Test
+    void domainFilterUsesDomainIndex() {
+        String plan = plan("SELECT * FROM contacts WHERE owner_username = 'owner1' AND email_domain = 'example3.com' "
+                + "ORDER BY email_domain, last_name_key, first_name_key, id");
+        assertThat(plan).contains("IDX_CONTACTS_OWNER_DOMAIN");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.contacts.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthFilterTest {
+
+    static final String SECRET = "dGhpc2lzbXlzZWNyZXRmb3J0ZXN0aW5nc2hvdWxkYmU0bG9uZw==";
+
+    JwtServiceImpl jwtService = new JwtServiceImpl(SECRET, 1000L * 60 * 60);
+
+    @Mock
+    UserDetailsService userDetailsService;
+
+    @Mock
+    TokenRevocationChecker revocationChecker;
+
+    JwtAuthFilter filter;
+
+    AutoCloseable mocks;
+
+    @BeforeEach
+    void setup() {
+        mocks = MockitoAnnotations.openMocks(this);
+        filter = new JwtAuthFilter(jwtService, userDetailsService, revocationChecker);
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        SecurityContextHolder.clearContext();
+        mocks.close();
+    }
+
+    // 1. token z claimem roli -> Authentication bez odczytu użytkownika
+    @Test
+    void roleClaim_authenticatesWithoutUserLookup() throws Exception {
+        String token = jwtService.generateToken(User.withUsername("john").password("x").authorities("ROLE_USER").build(), 3);
+
+        Authentication auth = runFilter(token);
+
+        assertThat(auth).isNotNull();
+        assertThat(auth.getName()).isEqualTo("john");
+        assertThat(auth.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+        verifyNoInteractions(userDetailsService);
+    }
+
+    // 2. starszy token bez claimu roli -> rola z UserDetailsService
+    @Test
+    void legacyToken_fallsBackToUserDetailsService() throws Exception {
+        String legacy = Jwts.builder()
+                .setSubject("old")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+        when(userDetailsService.loadUserByUsername("old"))
+                .thenReturn(User.withUsername("old").password("x").authorities("ROLE_ADMIN").build());
+
+        Authentication auth = runFilter(legacy);
+
+        assertThat(auth.getName()).isEqualTo("old");
+        assertThat(auth.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+    }
+
+    // 3. włączone sprawdzanie unieważnienia i nieaktualna wersja -> brak Authentication
+    @Test
+    void revokedToken_isNotAuthenticated() throws Exception {
+        String token = jwtService.generateToken(User.withUsername("john").password("x").authorities("ROLE_USER").build(), 1);
+        when(revocationChecker.appliesTo("ROLE_USER")).thenReturn(true);
+        when(revocationChecker.isCurrent("john", "ROLE_USER", 1)).thenReturn(false);
+
+        assertThat(runFilter(token)).isNull();
+    }
+
+    // 4. zły podpis -> brak Authentication, żądanie idzie dalej
+    @Test
+    void invalidToken_isIgnored() throws Exception {
+        assertThat(runFilter("not.a.jwt")).isNull();
+    }
+
+    private Authentication runFilter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/contacts");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(chain.getRequest()).isNotNull();
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
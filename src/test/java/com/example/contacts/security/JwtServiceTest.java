@@ -73,4 +73,35 @@ class JwtServiceTest {
         String t2 = jwtService.generateToken(ud);
         assertThat(t1).isNotEqualTo(t2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void roleAndUserVersionAreEmbedded() {
+        UserDetails ud = User.withUsername("kate").password("x").authorities("ROLE_ADMIN").build();
+        String token = jwtService.generateToken(ud, 7);
+        assertThat(jwtService.extractClaim(token, c -> c.get(JwtServiceImpl.ROLE_CLAIM, String.class)))
+                .isEqualTo("ROLE_ADMIN");
+        assertThat(jwtService.extractClaim(token, c -> c.get(JwtServiceImpl.USER_VERSION_CLAIM, Integer.class)))
+                .isEqualTo(7);
+    }
+
+    @Test
+    void repeatedTokenIsServedFromClaimsCache() {
+        JwtServiceImpl impl = (JwtServiceImpl) jwtService;
+        String token = jwtService.generateToken(User.withUsername("lee").password("x").roles("USER").build());
+
+        assertThat(jwtService.validateToken(token)).isTrue();
+        assertThat(jwtService.extractUsername(token)).isEqualTo("lee");
+        assertThat(jwtService.extractUsername(token)).isEqualTo("lee");
+
+        assertThat(impl.claimsCacheStats().missCount()).isEqualTo(1);
+        assertThat(impl.claimsCacheStats().hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidTokenIsNotCached() {
+        JwtServiceImpl impl = (JwtServiceImpl) jwtService;
+        assertThat(jwtService.validateToken("not.a.jwt")).isFalse();
+        assertThat(jwtService.validateToken("not.a.jwt")).isFalse();
+        assertThat(impl.claimsCacheStats().hitCount()).isZero();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.contacts.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    // 1 wątek + kolejka na 1 zadanie
+    PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, 2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    // 1. wynik zadania wraca do wywołującego
+    @Test
+    void returnsResult() {
+        assertThat(executor.call(() -> "hash")).isEqualTo("hash");
+    }
+
+    // 2. wyjątek zadania przekazany bez opakowania
+    @Test
+    void propagatesTaskException() {
+        assertThatThrownBy(() -> executor.call(() -> {
+            throw new BadCredentialsException("bad");
+        })).isInstanceOf(BadCredentialsException.class);
+    }
+
+    // 3. zajęty wątek i pełna kolejka -> odrzucenie od razu z Retry-After
+    @Test
+    void rejectsWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        Future<String> running = callers.submit(() -> executor.call(() -> {
+            started.countDown();
+            await(release);
+            return "a";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> queued = callers.submit(() -> executor.call(() -> "b"));
+        // daj drugiemu zadaniu czas na zajęcie jedynego miejsca w kolejce
+        Thread.sleep(200);
+
+        assertThatThrownBy(() -> executor.call(() -> "c"))
+                .isInstanceOf(HashingCapacityExceededException.class)
+                .extracting(e -> ((HashingCapacityExceededException) e).getRetryAfterSeconds())
+                .isEqualTo(2);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        callers.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
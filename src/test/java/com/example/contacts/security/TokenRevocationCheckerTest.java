@@ -0,0 +1,63 @@
+package com.example.contacts.security;
+
+import com.example.contacts.model.AppUser;
+import com.example.contacts.repository.UserRepository;
+import com.example.contacts.service.UserTokensRevokedEvent;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationCheckerTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    AutoCloseable mocks;
+
+    @BeforeEach
+    void setup() {
+        mocks = MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    // 1. domyślnie (sprawdzanie wyłączone) porównywane są tylko tokeny admina
+    @Test
+    void defaults_checkOnlyAdminTokens() {
+        TokenRevocationChecker checker = checker(false, true);
+
+        assertThat(checker.appliesTo("ROLE_ADMIN")).isTrue();
+        assertThat(checker.appliesTo("ROLE_USER")).isFalse();
+        assertThat(checker(true, false).appliesTo("ROLE_USER")).isTrue();
+    }
+
+    // 2. odebranie roli admina: po zdarzeniu (usunięcie wpisu z cache) stary token admina jest odrzucany
+    @Test
+    void demotedAdmin_rejectedAfterEviction() {
+        when(userRepository.findByUsername("ola"))
+                .thenReturn(Optional.of(user("ROLE_ADMIN", 0)), Optional.of(user("ROLE_USER", 1)));
+        TokenRevocationChecker checker = checker(false, true);
+
+        assertThat(checker.isCurrent("ola", "ROLE_ADMIN", 0)).isTrue();
+        checker.onTokensRevoked(new UserTokensRevokedEvent("ola"));
+
+        assertThat(checker.isCurrent("ola", "ROLE_ADMIN", 0)).isFalse();
+        verify(userRepository, times(2)).findByUsername("ola");
+    }
+
+    private TokenRevocationChecker checker(boolean enabled, boolean adminTokens) {
+        return new TokenRevocationChecker(userRepository, enabled, adminTokens, Duration.ofMinutes(1), 100);
+    }
+
+    private static AppUser user(String role, int tokenVersion) {
+        return AppUser.builder().username("ola").role(role).tokenVersion(tokenVersion).build();
+    }
+}
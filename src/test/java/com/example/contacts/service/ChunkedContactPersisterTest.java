@@ -0,0 +1,62 @@
+package com.example.contacts.service;
+
+import com.example.contacts.model.Contact;
+import com.example.contacts.repository.ContactRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChunkedContactPersisterTest {
+
+    @Mock
+    ContactRepository contactRepository;
+
+    @Mock
+    EntityManager entityManager;
+
+    AutoCloseable mocks;
+
+    @BeforeEach
+    void setup() {
+        mocks = MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    // 1. pełne porcje zapisywane od razu, reszta przy finish()
+    @Test
+    void savesInChunksAndClearsContext() {
+        ChunkedContactPersister persister = new ChunkedContactPersister(contactRepository, entityManager, 2);
+        for (int i = 0; i < 5; i++) {
+            persister.accept(new Contact());
+        }
+        verify(contactRepository, times(2)).saveAll(anyList());
+
+        long total = persister.finish();
+        assertThat(total).isEqualTo(5);
+        verify(contactRepository, times(3)).saveAll(anyList());
+        verify(entityManager, times(3)).flush();
+        verify(entityManager, times(3)).clear();
+    }
+
+    // 2. pusty import nic nie zapisuje
+    @Test
+    void emptyImportSavesNothing() {
+        ChunkedContactPersister persister = new ChunkedContactPersister(contactRepository, entityManager, 10);
+        assertThat(persister.finish()).isZero();
+        verifyNoInteractions(contactRepository, entityManager);
+    }
+
+    // 3. niepoprawny rozmiar porcji
+    @Test
+    void rejectsNonPositiveChunkSize() {
+        assertThatThrownBy(() -> new ChunkedContactPersister(contactRepository, entityManager, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
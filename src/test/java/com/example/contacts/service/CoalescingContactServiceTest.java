@@ -0,0 +1,217 @@
+package com.example.contacts.service;
+
+import com.example.contacts.TestSecurityUtils;
+import com.example.contacts.dto.ExportSnapshot;
+import com.example.contacts.model.Contact;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CoalescingContactServiceTest {
+
+    @Mock
+    ContactService delegate;
+
+    ExportSnapshotCache exportCache = new ExportSnapshotCache(1 << 20, 100);
+
+    CoalescingContactService service;
+
+    AutoCloseable mocks;
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void setup() {
+        mocks = MockitoAnnotations.openMocks(this);
+        service = new CoalescingContactService(delegate, exportCache);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+        mocks.close();
+        TestSecurityUtils.clear();
+    }
+
+    // 1. dwa równoczesne getAllContacts tego samego użytkownika -> jedno wywołanie, wspólny wynik
+    @Test
+    void getAllContacts_concurrentCallsShareOneRead() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Contact> contacts = List.of(Contact.builder().id(1L).ownerUsername("alice").build());
+        when(delegate.getAllContacts()).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return contacts;
+        });
+
+        Future<List<Contact>> leader = executor.submit(() -> asUser("alice", service::getAllContacts));
+        started.await();
+        Future<List<Contact>> follower = executor.submit(() -> asUser("alice", service::getAllContacts));
+        awaitJoined(1);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(contacts);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(contacts);
+        verify(delegate, times(1)).getAllContacts();
+    }
+
+    // 2. wynik nie jest przechowywany: kolejne wywołanie po zakończeniu czyta od nowa
+    @Test
+    void getAllContacts_resultNotKeptAfterCompletion() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(delegate.getAllContacts()).thenReturn(List.of());
+
+        service.getAllContacts();
+        service.getAllContacts();
+
+        verify(delegate, times(2)).getAllContacts();
+    }
+
+    // 3. zapis właściciela odłącza trwający eksport; kończący się później starszy eksport nie trafia do cache
+    @Test
+    void exportToJson_writeDetachesInFlightRead() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getRevision()).thenReturn(1L, 2L);
+        when(delegate.exportJsonSnapshot()).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return snapshot(1L, "[]");
+        }).thenReturn(snapshot(2L, "[{}]"));
+
+        Future<String> stale = executor.submit(() -> asUser("alice", service::exportToJson));
+        started.await();
+        service.onContactChanged(ContactChangedEvent.reloaded("alice"));
+
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        ExportSnapshot fresh = service.exportJsonSnapshot();
+        release.countDown();
+
+        assertThat(new String(fresh.getRaw(), StandardCharsets.UTF_8)).isEqualTo("[{}]");
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("[]");
+        assertThat(service.exportToJson()).isEqualTo("[{}]");
+        verify(delegate, times(2)).exportJsonSnapshot();
+    }
+
+    // 4. wyjątek lidera trafia do oczekujących z tym samym typem
+    @Test
+    void exportToXml_followerGetsLeaderException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.exportXmlSnapshot()).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            throw new IOException("disk");
+        });
+
+        Future<String> leader = executor.submit(() -> asUser("bob", service::exportToXml));
+        started.await();
+        Future<String> follower = executor.submit(() -> asUser("bob", service::exportToXml));
+        awaitJoined(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        verify(delegate, times(1)).exportXmlSnapshot();
+    }
+
+    // 5. powtórny eksport tej samej rewizji: bajty z cache bez serializacji; zapis właściciela je usuwa
+    @Test
+    void exportJsonSnapshot_servedFromCacheUntilOwnerChanges() throws Exception {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        ExportSnapshot export = snapshot(5L, "[]");
+        when(delegate.getRevision()).thenReturn(5L);
+        when(delegate.exportJsonSnapshot()).thenReturn(export);
+
+        assertThat(service.exportJsonSnapshot()).isSameAs(export);
+        assertThat(service.exportJsonSnapshot()).isSameAs(export);
+        verify(delegate, times(1)).exportJsonSnapshot();
+
+        exportCache.onContactChanged(ContactChangedEvent.deleted(3L, "bob"));
+        service.exportJsonSnapshot();
+        verify(delegate, times(1)).exportJsonSnapshot();
+
+        exportCache.onContactChanged(ContactChangedEvent.deleted(3L, "alice"));
+        service.exportJsonSnapshot();
+        verify(delegate, times(2)).exportJsonSnapshot();
+    }
+
+    // 6. eksport ponad limit bufora (null) nie trafia do cache, ale zostawia znacznik: ta sama rewizja
+    //    idzie od razu strumieniowo, bez ponownej serializacji; zapis do strumienia zawsze przez delegata
+    @Test
+    void exportToJson_largeExportStreamsThroughDelegate() throws Exception {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(delegate.getRevision()).thenReturn(5L);
+        when(delegate.exportJsonSnapshot()).thenReturn(null);
+        when(delegate.exportToJson()).thenReturn("[{}]");
+
+        assertThat(service.exportJsonSnapshot()).isNull();
+        assertThat(service.exportToJson()).isEqualTo("[{}]");
+        verify(delegate, times(1)).exportJsonSnapshot();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportToJson(out);
+        verify(delegate).exportToJson(out);
+        verify(delegate, times(1)).exportJsonSnapshot();
+    }
+
+    // 7. widok admina: bez cache i łączenia - wywołujący pisze eksport strumieniowo
+    @Test
+    void exportJsonSnapshot_adminNotBuffered() throws Exception {
+        TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
+
+        assertThat(service.exportJsonSnapshot()).isNull();
+        verifyNoInteractions(delegate);
+    }
+
+    // 8. znacznik "za duży" ważny tylko dla swojej rewizji i formatu; zapis właściciela go usuwa
+    @Test
+    void exportJsonSnapshot_oversizeMarkerPerRevision() throws Exception {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(delegate.getRevision()).thenReturn(5L);
+        when(delegate.exportJsonSnapshot()).thenReturn(null);
+        when(delegate.exportXmlSnapshot()).thenReturn(snapshot(5L, "<contacts/>"));
+
+        assertThat(service.exportJsonSnapshot()).isNull();
+        assertThat(service.exportXmlSnapshot()).isNotNull();
+
+        exportCache.onContactChanged(ContactChangedEvent.deleted(3L, "alice"));
+        assertThat(service.exportJsonSnapshot()).isNull();
+        verify(delegate, times(2)).exportJsonSnapshot();
+
+        when(delegate.getRevision()).thenReturn(6L);
+        when(delegate.exportJsonSnapshot()).thenReturn(snapshot(6L, "[]"));
+        assertThat(service.exportJsonSnapshot()).isNotNull();
+        verify(delegate, times(3)).exportJsonSnapshot();
+    }
+
+    private static ExportSnapshot snapshot(long revision, String body) {
+        return ExportSnapshot.of(revision, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static <V> V asUser(String username, Callable<V> call) throws Exception {
+        TestSecurityUtils.setAuthentication(username, "ROLE_USER");
+        try {
+            return call.call();
+        } finally {
+            TestSecurityUtils.clear();
+        }
+    }
+
+    // oczekujący dołączył do trwającego odczytu (licznik zwiększany przed czekaniem na wynik)
+    private void awaitJoined(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.coalescedCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(service.coalescedCount()).isEqualTo(expected);
+    }
+}
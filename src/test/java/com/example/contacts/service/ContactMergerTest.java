@@ -0,0 +1,95 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.dto.ImportResult;
+import com.example.contacts.model.Contact;
+import com.example.contacts.repository.ContactRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ContactMergerTest {
+
+    @Mock
+    ContactRepository contactRepository;
+
+    @Mock
+    EntityManager entityManager;
+
+    ContactMerger merger;
+
+    AutoCloseable mocks;
+
+    @BeforeEach
+    void setup() {
+        mocks = MockitoAnnotations.openMocks(this);
+        merger = new ContactMerger(contactRepository, entityManager,
+                new ChunkedContactPersister(contactRepository, entityManager, 10), 10, 7L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    private static Contact incoming(String first, String email, String phone) {
+        return Contact.builder().firstName(first).lastName("L").email(email).phone(phone).ownerUsername("ola").build();
+    }
+
+    // 1. wstawia nowe, zmienia zmienione, usuwa brakujące, pomija niezmienione
+    @Test
+    void appliesOnlyTheDelta() {
+        when(contactRepository.streamSnapshotsByOwner("ola")).thenReturn(Stream.of(
+                new ContactSnapshot(1L, "Same", "L", "same@x.pl", "111111111", 0L),
+                new ContactSnapshot(2L, "Old", "L", "chg@x.pl", "222222222", 0L),
+                new ContactSnapshot(3L, "Gone", "L", "gone@x.pl", "333333333", 0L)
+        ));
+        Contact managed = Contact.builder().id(2L).firstName("Old").lastName("L").email("chg@x.pl").phone("222222222").build();
+        when(contactRepository.findAllById(List.of(2L))).thenReturn(List.of(managed));
+
+        merger.loadExisting("ola");
+        merger.accept(incoming("Same", "same@x.pl", "111111111"));
+        merger.accept(incoming("New", " CHG@x.pl ", "222222222"));
+        merger.accept(incoming("Fresh", "fresh@x.pl", "444444444"));
+        ImportResult result = merger.finish();
+
+        assertThat(result).isEqualTo(new ImportResult(1, 1, 1, 1));
+        assertThat(managed.getFirstName()).isEqualTo("New");
+        assertThat(managed.getChangeRevision()).isEqualTo(7L);
+        InOrder order = inOrder(contactRepository);
+        order.verify(contactRepository).recordTombstones(eq(List.of(3L)), any(), eq(7L));
+        order.verify(contactRepository).deleteAllByIdInBatch(List.of(3L));
+        verify(contactRepository).saveAll(anyList());
+    }
+
+    // 2. duplikaty klucza: każdy istniejący wiersz dopasowany co najwyżej raz
+    @Test
+    void duplicateKeysMatchOnce() {
+        when(contactRepository.streamSnapshotsByOwner("ola")).thenReturn(Stream.of(
+                new ContactSnapshot(1L, "A", "L", "dup@x.pl", "111111111", 0L)
+        ));
+
+        merger.loadExisting("ola");
+        merger.accept(incoming("A", "dup@x.pl", "111111111"));
+        merger.accept(incoming("A", "dup@x.pl", "111111111"));
+        ImportResult result = merger.finish();
+
+        assertThat(result.getUnchanged()).isEqualTo(1);
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getDeleted()).isZero();
+        verify(contactRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    // 3. klucz naturalny ignoruje wielkość liter i spacje w emailu
+    @Test
+    void naturalKeyIsNormalized() {
+        assertThat(ContactMerger.naturalKey(" Jan@Example.COM ", "123456789"))
+                .isEqualTo(ContactMerger.naturalKey("jan@example.com", "123456789"));
+    }
+}
@@ -1,21 +1,41 @@
 package com.example.contacts.service;
 
 import com.example.contacts.TestSecurityUtils;
-import com.example.contacts.model.AppUser;
+import com.example.contacts.dto.ContactListQuery;
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.dto.ContactSort;
+import com.example.contacts.dto.ContactsExportDTO;
 import com.example.contacts.model.Contact;
+import com.example.contacts.model.ContactSortKeys;
+import com.example.contacts.model.OwnerRevision;
 import com.example.contacts.repository.ContactRepository;
-import com.example.contacts.repository.UserRepository;
+import com.example.contacts.repository.ContactTombstoneRepository;
+import com.example.contacts.repository.OwnerRevisionRepository;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
 import org.junit.jupiter.api.*;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,11 +47,29 @@ class ContactServiceTest {
     ContactRepository contactRepository;
 
     @Mock
-    UserRepository userRepository;
+    OwnerRevisionRepository ownerRevisionRepository;
+
+    @Mock
+    ContactTombstoneRepository tombstoneRepository;
+
+    @Mock
+    EntityManager entityManager;
 
     @Mock
     Validator validator;
 
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    PhoneIndex phoneIndex;
+
+    @Mock
+    SearchIndex searchIndex;
+
+    @Spy
+    OwnerContactsCache ownerContactsCache = new OwnerContactsCache(100, Duration.ofMinutes(1));
+
     // Inject concrete implementation so Mockito może utworzyć instancję i wstrzyknąć mocki
     @InjectMocks
     ContactServiceImpl contactService;
@@ -51,30 +89,25 @@ class ContactServiceTest {
         TestSecurityUtils.clear();
     }
 
-    private AppUser user(String username, String role) {
-        return AppUser.builder().username(username).password("x").role(role).build();
-    }
-
     // 1. getAllContacts — user gets own
     @Test
     void getAllContacts_returnsOnlyUserContacts() {
         TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
 
-        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user("alice", "ROLE_USER")));
-        when(contactRepository.findByOwnerUsername("alice")).thenReturn(List.of(
+        when(contactRepository.findIdsByOwnerUsername("alice")).thenReturn(List.of(1L));
+        when(contactRepository.findAllByIdCached(List.of(1L))).thenReturn(List.of(
                 Contact.builder().id(1L).ownerUsername("alice").firstName("A").lastName("B").email("a@b").phone("123456789").build()
         ));
 
         var res = contactService.getAllContacts();
         assertThat(res).hasSize(1);
-        verify(contactRepository).findByOwnerUsername("alice");
+        verify(contactRepository).findIdsByOwnerUsername("alice");
     }
 
     // 2. getAllContacts — admin gets all
     @Test
     void getAllContacts_adminReturnsAll() {
         TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
-        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(user("admin", "ROLE_ADMIN")));
         when(contactRepository.findAll()).thenReturn(List.of(new Contact()));
 
         var res = contactService.getAllContacts();
@@ -87,22 +120,21 @@ class ContactServiceTest {
     void getContact_ownerAllowed() {
         TestSecurityUtils.setAuthentication("bob", "ROLE_USER");
         Contact c = Contact.builder().id(2L).ownerUsername("bob").firstName("F").lastName("L").email("e@e").phone("123456789").build();
-        when(contactRepository.findById(2L)).thenReturn(Optional.of(c));
-        when(userRepository.findByUsername("bob")).thenReturn(Optional.of(user("bob","ROLE_USER")));
+        when(contactRepository.findByIdAndOwnerUsername(2L, "bob")).thenReturn(Optional.of(c));
 
         Contact found = contactService.getContact(2L);
         assertThat(found).isEqualTo(c);
+        verify(contactRepository, never()).findById(any());
     }
 
     // 4. getContact — forbidden for non-owner
     @Test
     void getContact_nonOwnerThrows() {
         TestSecurityUtils.setAuthentication("eve", "ROLE_USER");
-        Contact c = Contact.builder().id(3L).ownerUsername("alice").build();
-        when(contactRepository.findById(3L)).thenReturn(Optional.of(c));
-        when(userRepository.findByUsername("eve")).thenReturn(Optional.of(user("eve","ROLE_USER")));
+        when(contactRepository.findByIdAndOwnerUsername(3L, "eve")).thenReturn(Optional.empty());
+        when(contactRepository.existsById(3L)).thenReturn(true);
 
-        assertThatThrownBy(() -> contactService.getContact(3L)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> contactService.getContact(3L)).isInstanceOf(AccessDeniedException.class);
     }
 
     // 5. addContact — user can add
@@ -137,8 +169,8 @@ class ContactServiceTest {
         Contact existing = Contact.builder().id(5L).ownerUsername("dave").firstName("Old").lastName("O").email("o@o").phone("123456789").build();
         Contact updated = Contact.builder().firstName("New").lastName("N").email("n@n").phone("987654321").build();
 
-        when(contactRepository.findById(5L)).thenReturn(Optional.of(existing));
-        when(contactRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(contactRepository.findByIdAndOwnerUsername(5L, "dave")).thenReturn(Optional.of(existing));
+        when(contactRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
         Contact res = contactService.updateContact(5L, updated);
         assertThat(res.getFirstName()).isEqualTo("New");
@@ -148,7 +180,9 @@ class ContactServiceTest {
     // 8. updateContact — not found returns null
     @Test
     void updateContact_notFound() {
-        when(contactRepository.findById(99L)).thenReturn(Optional.empty());
+        TestSecurityUtils.setAuthentication("dave", "ROLE_USER");
+        when(contactRepository.findByIdAndOwnerUsername(99L, "dave")).thenReturn(Optional.empty());
+        when(contactRepository.existsById(99L)).thenReturn(false);
         Contact any = new Contact();
         var res = contactService.updateContact(99L, any);
         assertThat(res).isNull();
@@ -158,13 +192,12 @@ class ContactServiceTest {
     @Test
     void deleteContact_success() {
         TestSecurityUtils.setAuthentication("frank", "ROLE_USER");
-        Contact c = Contact.builder().id(8L).ownerUsername("frank").build();
-        when(contactRepository.findById(8L)).thenReturn(Optional.of(c));
-        doNothing().when(contactRepository).delete(c);
+        when(contactRepository.deleteMatching(8L, "frank", null)).thenReturn(1);
 
         boolean res = contactService.deleteContact(8L);
         assertThat(res).isTrue();
-        verify(contactRepository).delete(c);
+        verify(contactRepository).deleteMatching(8L, "frank", null);
+        verify(contactRepository, never()).findById(any());
     }
 
     // 10. replaceContacts — admin cannot import
@@ -174,4 +207,544 @@ class ContactServiceTest {
         List<Contact> list = List.of(new Contact());
         assertThatThrownBy(() -> contactService.replaceContacts(list)).isInstanceOf(AccessDeniedException.class);
     }
-}
\ No newline at end of file
+
+    // 11. getContactsPage — pierwsza strona z kursorem next (klucze sortowania ostatniego wiersza)
+    @Test
+    void getContactsPage_firstPageHasNextCursor() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        List<Contact> rows = new ArrayList<>();
+        for (String name : List.of("A", "B", "C")) {
+            rows.add(Contact.builder().id((long) name.charAt(0)).lastName(name).firstName(name)
+                    .lastNameKey(ContactSortKeys.key(name)).firstNameKey(ContactSortKeys.key(name)).emailDomain("x.pl").build());
+        }
+        when(contactRepository.findPage("alice", ContactListQuery.defaults(), null, 3)).thenReturn(rows);
+
+        var page = contactService.getContactsPage(null, 2);
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getNext()).isNotNull();
+
+        ContactCursor cursor = ContactCursor.decode(page.getNext());
+        assertThat(cursor.getSort()).isEqualTo(ContactSort.LAST_NAME);
+        assertThat(cursor.getLastNameKey()).isEqualTo(rows.get(1).getLastNameKey());
+        assertThat(cursor.getId()).isEqualTo((long) 'B');
+    }
+
+    // 12. getContactsPage — kolejna strona od kursora, ostatnia strona bez next; kursor innego porządku -> 400
+    @Test
+    void getContactsPage_afterCursorLastPage() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        Contact last = Contact.builder().id(2L).lastName("B").firstName("B")
+                .lastNameKey(ContactSortKeys.key("B")).firstNameKey(ContactSortKeys.key("B")).emailDomain("x.pl").build();
+        String after = ContactCursor.of(ContactSort.LAST_NAME, last).encode();
+        when(contactRepository.findPage(eq("alice"), eq(ContactListQuery.defaults()), any(), eq(3))).thenReturn(List.of(
+                Contact.builder().id(3L).lastName("C").firstName("C").build()
+        ));
+
+        var page = contactService.getContactsPage(after, 2);
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.getNext()).isNull();
+
+        ArgumentCaptor<Contact> captor = ArgumentCaptor.forClass(Contact.class);
+        verify(contactRepository).findPage(eq("alice"), any(), captor.capture(), eq(3));
+        assertThat(captor.getValue().getId()).isEqualTo(2L);
+        assertThat(captor.getValue().getLastNameKey()).isEqualTo(last.getLastNameKey());
+
+        var byFirstName = ContactListQuery.builder().sort(ContactSort.FIRST_NAME).build();
+        assertThatThrownBy(() -> contactService.getContactsPage(after, 2, byFirstName)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // 13. getContactsPage — limit przycięty do maksymalnego rozmiaru strony, admin bez warunku właściciela
+    @Test
+    void getContactsPage_limitIsCapped() {
+        TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
+
+        contactService.getContactsPage(null, 1_000_000);
+        verify(contactRepository).findPage(null, ContactListQuery.defaults(), null, 501);
+    }
+
+    // 14. getContactsPage — śmieciowy kursor
+    @Test
+    void getContactsPage_invalidCursorThrows() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        assertThatThrownBy(() -> contactService.getContactsPage("%%%", 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // 15. exportToJson — zapis strumieniowy bez id/właściciela, encje odpinane
+    @Test
+    void exportToJson_streamsAndDetaches() throws Exception {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        Contact c = Contact.builder().id(7L).ownerUsername("alice").firstName("Jan").lastName("Nowak").email("j@n").phone("123456789").build();
+        when(contactRepository.streamByOwnerUsername("alice")).thenReturn(Stream.of(c));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        contactService.exportToJson(out);
+
+        String json = out.toString(StandardCharsets.UTF_8);
+        assertThat(json).contains("\"firstName\" : \"Jan\"").doesNotContain("alice");
+        verify(entityManager).detach(c);
+    }
+
+    // 16. exportToXml — wynik strumieniowy czytelny jako ContactsExportDTO
+    @Test
+    void exportToXml_compatibleWithExportDto() throws Exception {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(contactRepository.streamByOwnerUsername("alice")).thenReturn(Stream.of(
+                Contact.builder().id(1L).ownerUsername("alice").firstName("Łucja").lastName("A&B").email("l@a").phone("123456789").build(),
+                Contact.builder().id(2L).ownerUsername("alice").firstName("Jan").lastName("C").email("j@c").phone("987654321").build()
+        ));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        contactService.exportToXml(out);
+
+        ContactsExportDTO dto = new XmlMapper().readValue(out.toByteArray(), ContactsExportDTO.class);
+        assertThat(dto.getContacts()).hasSize(2);
+        assertThat(dto.getContacts().get(0).getFirstName()).isEqualTo("Łucja");
+        assertThat(dto.getContacts().get(0).getLastName()).isEqualTo("A&B");
+        assertThat(dto.getContacts().get(0).getOwnerUsername()).isNull();
+        verify(entityManager, times(2)).detach(any());
+    }
+
+    // 17. replaceContactsFromJson — strumieniowy import: właściciel ustawiony, id wyzerowane, usunięcie starych
+    @Test
+    void replaceContactsFromJson_streamsIntoRepository() throws Exception {
+        TestSecurityUtils.setAuthentication("ola", "ROLE_USER");
+        String json = "[{\"id\":99,\"firstName\":\"A\",\"lastName\":\"B\",\"email\":\"a@b.pl\",\"phone\":\"123456789\",\"extra\":1},"
+                + "{\"firstName\":\"C\",\"lastName\":\"D\",\"email\":\"c@d.pl\",\"phone\":\"987654321\"}]";
+
+        List<Contact> saved = new ArrayList<>();
+        when(contactRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Contact> chunk = inv.getArgument(0);
+            saved.addAll(chunk);
+            return chunk;
+        });
+
+        long imported = contactService.replaceContactsFromJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(imported).isEqualTo(2);
+        verify(contactRepository).deleteByOwnerUsername("ola");
+        assertThat(saved).extracting(Contact::getOwnerUsername).containsOnly("ola");
+        assertThat(saved).extracting(Contact::getId).containsOnlyNulls();
+        verify(validator, times(2)).validate(any());
+    }
+
+    // 18. replaceContactsFromJson — wejście nie będące tablicą jest odrzucane
+    @Test
+    void replaceContactsFromJson_rejectsNonArray() {
+        TestSecurityUtils.setAuthentication("ola", "ROLE_USER");
+        var in = new ByteArrayInputStream("{\"firstName\":\"A\"}".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> contactService.replaceContactsFromJson(in))
+                .isInstanceOf(com.fasterxml.jackson.core.JsonProcessingException.class);
+        verify(contactRepository, never()).saveAll(any());
+    }
+
+    // 19. replaceContactsFromJson — admin nie może importować
+    @Test
+    void replaceContactsFromJson_adminCannotImport() {
+        TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
+        var in = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> contactService.replaceContactsFromJson(in)).isInstanceOf(AccessDeniedException.class);
+    }
+
+    // 20. replaceContactsFromXml — format eksportu <contacts><contact>, jeden przebieg
+    @Test
+    void replaceContactsFromXml_exportShape() throws Exception {
+        TestSecurityUtils.setAuthentication("ola", "ROLE_USER");
+        String xml = "<?xml version='1.0' encoding='UTF-8'?>\n<contacts>\n"
+                + "  <contact><id/><firstName>Żaneta</firstName><lastName>B</lastName><email>z@b.pl</email><phone>123456789</phone><ownerUsername/></contact>\n"
+                + "  <contact><firstName>C</firstName><lastName>D</lastName><email>c@d.pl</email><phone>987654321</phone></contact>\n"
+                + "</contacts>";
+        List<Contact> saved = new ArrayList<>();
+        when(contactRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Contact> chunk = inv.getArgument(0);
+            saved.addAll(chunk);
+            return chunk;
+        });
+
+        long imported = contactService.replaceContactsFromXml(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(imported).isEqualTo(2);
+        assertThat(saved).extracting(Contact::getFirstName).containsExactly("Żaneta", "C");
+        assertThat(saved).extracting(Contact::getOwnerUsername).containsOnly("ola");
+    }
+
+    // 21. replaceContactsFromXml — goła lista (np. <ArrayList><item>)
+    @Test
+    void replaceContactsFromXml_bareList() throws Exception {
+        TestSecurityUtils.setAuthentication("ola", "ROLE_USER");
+        String xml = "<ArrayList><item><firstName>A</firstName><lastName>B</lastName><email>a@b.pl</email><phone>123456789</phone></item></ArrayList>";
+
+        long imported = contactService.replaceContactsFromXml(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(imported).isEqualTo(1);
+        verify(contactRepository).saveAll(anyList());
+    }
+
+    // 22. replaceContactsFromXml — uszkodzony XML przerywa import bez zapisu
+    @Test
+    void replaceContactsFromXml_malformedFailsFast() {
+        TestSecurityUtils.setAuthentication("ola", "ROLE_USER");
+        String xml = "<contacts><contact><firstName>A</firstName></contacts>";
+        var in = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> contactService.replaceContactsFromXml(in)).isInstanceOf(Exception.class);
+        verify(contactRepository, never()).saveAll(any());
+    }
+
+    // 23. deleteContact — admin usuwa jednym DELETE bez warunku właściciela (właściciel tylko do licznika zmian)
+    @Test
+    void deleteContact_adminSingleStatement() {
+        TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
+        when(contactRepository.findOwnerUsernameById(8L)).thenReturn(Optional.of("frank"));
+        when(contactRepository.deleteMatching(8L, null, null)).thenReturn(1);
+
+        assertThat(contactService.deleteContact(8L)).isTrue();
+        verify(contactRepository).deleteMatching(8L, null, null);
+    }
+
+    // 24. deleteContact — cudzy kontakt -> AccessDeniedException, nic nie usunięte
+    @Test
+    void deleteContact_nonOwnerDenied() {
+        TestSecurityUtils.setAuthentication("eve", "ROLE_USER");
+        when(contactRepository.deleteMatching(8L, "eve", null)).thenReturn(0);
+        when(contactRepository.existsById(8L)).thenReturn(true);
+
+        assertThatThrownBy(() -> contactService.deleteContact(8L)).isInstanceOf(AccessDeniedException.class);
+        verify(ownerRevisionRepository, never()).bump(any());
+    }
+
+    // 25. patchContact — blokada licznika właściciela, potem jedno UPDATE tylko ze zmienionym polem i jego rewizją,
+    //     bez odczytu kontaktu; zwraca nową wersję
+    @Test
+    void patchContact_updatesOnlyGivenFields() {
+        TestSecurityUtils.setAuthentication("dave", "ROLE_USER");
+        when(ownerRevisionRepository.lockNextRevision("dave")).thenReturn(3L);
+        when(contactRepository.updateFields(5L, "dave", null, 3L, Map.of("phone", "987654321"))).thenReturn(5L);
+
+        assertThat(contactService.patchContact(5L, Map.of("phone", "987654321"))).isEqualTo(5L);
+        verify(validator).validateValue(Contact.class, "phone", "987654321");
+        InOrder order = inOrder(ownerRevisionRepository, contactRepository);
+        order.verify(ownerRevisionRepository).lockNextRevision("dave");
+        order.verify(contactRepository).updateFields(5L, "dave", null, 3L, Map.of("phone", "987654321"));
+        order.verify(ownerRevisionRepository).bump("dave");
+        verify(contactRepository, never()).findByIdAndOwnerUsername(any(), any());
+        verify(contactRepository, never()).save(any());
+    }
+
+    // 26. patchContact — pole spoza kontaktu (id, ownerUsername) odrzucone
+    @Test
+    void patchContact_rejectsUnknownField() {
+        TestSecurityUtils.setAuthentication("dave", "ROLE_USER");
+        assertThatThrownBy(() -> contactService.patchContact(5L, Map.of("ownerUsername", "eve")))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(contactRepository);
+    }
+
+    // 27. patchContact — cudzy kontakt (UPDATE z warunkiem właściciela bez wiersza) -> AccessDeniedException
+    @Test
+    void patchContact_nonOwnerDenied() {
+        TestSecurityUtils.setAuthentication("eve", "ROLE_USER");
+        when(contactRepository.findByIdAndOwnerUsername(5L, "eve")).thenReturn(Optional.empty());
+        when(contactRepository.existsById(5L)).thenReturn(true);
+
+        assertThatThrownBy(() -> contactService.patchContact(5L, Map.of("phone", "987654321")))
+                .isInstanceOf(AccessDeniedException.class);
+        verify(contactRepository).updateFields(5L, "eve", null, 0L, Map.of("phone", "987654321"));
+        verify(ownerRevisionRepository, never()).bump(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    // 28. updateContact — If-Match z inną wersją -> OptimisticLockingFailureException, brak zapisu
+    @Test
+    void updateContact_staleVersionConflicts() {
+        TestSecurityUtils.setAuthentication("dave", "ROLE_USER");
+        Contact existing = Contact.builder().id(5L).ownerUsername("dave").firstName("Old").version(3L).build();
+        when(contactRepository.findByIdAndOwnerUsername(5L, "dave")).thenReturn(Optional.of(existing));
+
+        assertThatThrownBy(() -> contactService.updateContact(5L, new Contact(), 2L))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(existing.getFirstName()).isEqualTo("Old");
+        verify(contactRepository, never()).saveAndFlush(any());
+    }
+
+    // 29. patchContact — warunek wersji nie spełniony dla istniejącego kontaktu -> konflikt
+    @Test
+    void patchContact_staleVersionConflicts() {
+        TestSecurityUtils.setAuthentication("dave", "ROLE_USER");
+        Contact existing = Contact.builder().id(5L).ownerUsername("dave").phone("123456789").version(3L).build();
+        when(contactRepository.findByIdAndOwnerUsername(5L, "dave")).thenReturn(Optional.of(existing));
+
+        assertThatThrownBy(() -> contactService.patchContact(5L, Map.of("phone", "987654321"), 2L))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(contactRepository).updateFields(5L, "dave", 2L, 0L, Map.of("phone", "987654321"));
+        verify(ownerRevisionRepository, never()).bump(any());
+    }
+
+    // 30. zapisy zwiększają licznik zmian właściciela, nie admina
+    @Test
+    void writesBumpOwnerRevision() {
+        TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
+        when(contactRepository.findOwnerUsernameById(8L)).thenReturn(Optional.of("frank"));
+        when(contactRepository.deleteMatching(8L, null, null)).thenReturn(1);
+
+        contactService.deleteContact(8L);
+
+        verify(ownerRevisionRepository).bump("frank");
+        verify(ownerRevisionRepository, never()).bump("admin");
+    }
+
+    // 31. getRevision — użytkownik: własny licznik (0 gdy brak wiersza), admin: suma
+    @Test
+    void getRevision_userAndAdmin() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(ownerRevisionRepository.findRevision("alice")).thenReturn(Optional.empty());
+        assertThat(contactService.getRevision()).isZero();
+
+        TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
+        when(ownerRevisionRepository.sumRevisions()).thenReturn(12L);
+        assertThat(contactService.getRevision()).isEqualTo(12L);
+    }
+
+    // 32. getChanges — bez tokenu: pierwsza strona pełnej listy, reset, token z rewizją sprzed odczytu
+    @Test
+    void getChanges_withoutTokenResets() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(ownerRevisionRepository.findById("alice")).thenReturn(Optional.of(new OwnerRevision("alice", 6L, 0L)));
+        when(contactRepository.findPage(eq("alice"), any(), isNull(), eq(1001))).thenReturn(List.of(new Contact()));
+
+        var changes = contactService.getChanges(null);
+
+        assertThat(changes.isReset()).isTrue();
+        assertThat(changes.isMore()).isFalse();
+        assertThat(changes.getUpserts()).hasSize(1);
+        assertThat(SyncToken.decode(changes.getToken())).isEqualTo(new SyncToken("alice", 6L, null));
+    }
+
+    // 33. getChanges — z tokenem: wiersze i tombstone'y z rewizją wyższą niż w tokenie, nowy token z bieżącą rewizją
+    @Test
+    void getChanges_sinceTokenReturnsDelta() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(ownerRevisionRepository.findById("alice")).thenReturn(Optional.of(new OwnerRevision("alice", 6L, 0L)));
+        when(contactRepository.findByOwnerUsernameAndChangeRevisionGreaterThanOrderByChangeRevisionAscIdAsc("alice", 3L))
+                .thenReturn(List.of(Contact.builder().id(4L).build()));
+        when(tombstoneRepository.findDeletedIdsSince("alice", 3L)).thenReturn(List.of(9L));
+
+        var changes = contactService.getChanges(new SyncToken("alice", 3L, null).encode());
+
+        assertThat(changes.isReset()).isFalse();
+        assertThat(changes.getUpserts()).extracting(Contact::getId).containsExactly(4L);
+        assertThat(changes.getDeletes()).containsExactly(9L);
+        assertThat(SyncToken.decode(changes.getToken()).getRevision()).isEqualTo(6L);
+        verify(contactRepository, never()).findPage(any(), any(), any(), anyInt());
+    }
+
+    // 34. getChanges — uszkodzony token -> IllegalArgumentException (400)
+    @Test
+    void getChanges_invalidToken() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        assertThatThrownBy(() -> contactService.getChanges("%%%")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // 35. deleteContact — tombstone zapisany przed DELETE
+    @Test
+    void deleteContact_recordsTombstoneFirst() {
+        TestSecurityUtils.setAuthentication("frank", "ROLE_USER");
+        when(contactRepository.deleteMatching(8L, "frank", null)).thenReturn(1);
+
+        contactService.deleteContact(8L);
+
+        InOrder order = inOrder(contactRepository);
+        order.verify(contactRepository).recordTombstones(eq(List.of(8L)), any(), anyLong());
+        order.verify(contactRepository).deleteMatching(8L, "frank", null);
+    }
+
+    // 36. findContactIdsByPhone — indeks gotowy: bez zapytania do bazy, tylko kontakty właściciela
+    @Test
+    void findContactIdsByPhone_usesIndexWhenReady() {
+        TestSecurityUtils.setAuthentication("gina", "ROLE_USER");
+        when(phoneIndex.isReady()).thenReturn(true);
+        when(phoneIndex.find("gina", "600100200")).thenReturn(new long[]{9L, 4L});
+
+        assertThat(contactService.findContactIdsByPhone("600100200")).containsExactly(4L, 9L);
+        verifyNoInteractions(contactRepository);
+
+        assertThatThrownBy(() -> contactService.findContactIdsByPhone("12-34")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // 37. findContactIdsByPhone — indeks jeszcze budowany: zapytanie zastępcze
+    @Test
+    void findContactIdsByPhone_fallsBackToRepositoryBeforeIndexReady() {
+        TestSecurityUtils.setAuthentication("gina", "ROLE_USER");
+        when(phoneIndex.isReady()).thenReturn(false);
+        when(contactRepository.findIdsByOwnerUsernameAndPhone("gina", "600100200")).thenReturn(List.of(4L));
+
+        assertThat(contactService.findContactIdsByPhone("600100200")).containsExactly(4L);
+    }
+
+    // 38. zapisy publikują ContactChangedEvent (indeksy w pamięci)
+    @Test
+    void writes_publishContactChangedEvents() {
+        TestSecurityUtils.setAuthentication("gina", "ROLE_USER");
+        when(contactRepository.save(any(Contact.class))).thenAnswer(inv -> {
+            Contact c = inv.getArgument(0);
+            c.setId(12L);
+            return c;
+        });
+        when(contactRepository.deleteMatching(12L, "gina", null)).thenReturn(1);
+
+        contactService.addContact(Contact.builder().firstName("G").lastName("H").email("g@h.pl").phone("600100200").build());
+        contactService.deleteContact(12L);
+
+        ArgumentCaptor<ContactChangedEvent> events = ArgumentCaptor.forClass(ContactChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues())
+                .extracting(ContactChangedEvent::getKind, ContactChangedEvent::getOwnerUsername, ContactChangedEvent::getContactId)
+                .containsExactly(tuple(ContactChangedEvent.Kind.SAVED, "gina", 12L), tuple(ContactChangedEvent.Kind.DELETED, "gina", 12L));
+        assertThat(events.getAllValues().get(0).getContact().getPhone()).isEqualTo("600100200");
+    }
+
+    // 39. searchContacts — indeks gotowy: wyniki z pamięci, limit obcięty do maksimum
+    @Test
+    void searchContacts_usesIndexWhenReady() {
+        TestSecurityUtils.setAuthentication("gina", "ROLE_USER");
+        when(searchIndex.isReady()).thenReturn(true);
+        var hit = new ContactSnapshot(3L, "Łucja", "Żak", "lz@x.pl", "600100200", 0L);
+        when(searchIndex.search("gina", "luc", 100)).thenReturn(List.of(hit));
+
+        assertThat(contactService.searchContacts("luc", 5000)).containsExactly(hit);
+        assertThat(contactService.searchContacts("  ", null)).isEmpty();
+        verifyNoInteractions(contactRepository);
+    }
+
+    // 40. searchContacts — indeks jeszcze budowany: LIKE z ucieczką % i _
+    @Test
+    void searchContacts_fallsBackToLikeBeforeIndexReady() {
+        TestSecurityUtils.setAuthentication("gina", "ROLE_USER");
+        when(searchIndex.isReady()).thenReturn(false);
+
+        contactService.searchContacts(" A_b%", null);
+
+        verify(contactRepository).searchSnapshotsByOwner("gina", "%a\\_b\\%%", Limit.of(20));
+    }
+
+    // 41. getAllContacts — lista id z cache właściciela; zapis tego właściciela ją unieważnia
+    @Test
+    void getAllContacts_ownerListCachedUntilOwnerChanges() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(contactRepository.findIdsByOwnerUsername("alice")).thenReturn(List.of(1L, 2L));
+
+        contactService.getAllContacts();
+        contactService.getAllContacts();
+        verify(contactRepository, times(1)).findIdsByOwnerUsername("alice");
+        verify(contactRepository, times(2)).findAllByIdCached(List.of(1L, 2L));
+
+        ownerContactsCache.onContactChanged(ContactChangedEvent.deleted(7L, "bob"));
+        contactService.getAllContacts();
+        verify(contactRepository, times(1)).findIdsByOwnerUsername("alice");
+
+        ownerContactsCache.onContactChanged(ContactChangedEvent.deleted(2L, "alice"));
+        contactService.getAllContacts();
+        verify(contactRepository, times(2)).findIdsByOwnerUsername("alice");
+    }
+
+    // 42. exportJsonSnapshot — rewizja odczytana przed danymi, gzip rozpakowuje się do tych samych bajtów
+    @Test
+    void exportJsonSnapshot_rawAndGzipWithRevision() throws Exception {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(ownerRevisionRepository.findRevision("alice")).thenReturn(Optional.of(6L));
+        Contact c = Contact.builder().id(7L).ownerUsername("alice").firstName("Jan").lastName("Nowak").email("j@n").phone("123456789").build();
+        when(contactRepository.streamByOwnerUsername("alice")).thenReturn(Stream.of(c));
+
+        var export = contactService.exportJsonSnapshot();
+
+        assertThat(export.getRevision()).isEqualTo(6L);
+        assertThat(new String(export.getRaw(), StandardCharsets.UTF_8)).contains("\"lastName\" : \"Nowak\"");
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(export.getGzip()))) {
+            assertThat(in.readAllBytes()).isEqualTo(export.getRaw());
+        }
+        InOrder order = inOrder(ownerRevisionRepository, contactRepository);
+        order.verify(ownerRevisionRepository).findRevision("alice");
+        order.verify(contactRepository).streamByOwnerUsername("alice");
+    }
+
+    // 43. patchContact — wartości równe zapisanym (UPDATE bez wiersza): bez licznika zmian i zdarzenia; zwraca obecną wersję
+    @Test
+    void patchContact_noOpKeepsVersion() {
+        TestSecurityUtils.setAuthentication("dave", "ROLE_USER");
+        Contact existing = Contact.builder().id(5L).ownerUsername("dave").phone("123456789").version(4L).build();
+        when(contactRepository.findByIdAndOwnerUsername(5L, "dave")).thenReturn(Optional.of(existing));
+
+        assertThat(contactService.patchContact(5L, Map.of("phone", "123456789"), 4L)).isEqualTo(4L);
+        verify(ownerRevisionRepository, never()).bump(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    // 44. patchContact — admin: właściciel odczytany przed blokadą jego licznika, UPDATE z warunkiem tego właściciela
+    @Test
+    void patchContact_adminResolvesOwnerFirst() {
+        TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
+        when(contactRepository.findOwnerUsernameById(5L)).thenReturn(Optional.of("dave"));
+        when(contactRepository.updateFields(5L, "dave", 4L, 0L, Map.of("phone", "987654321"))).thenReturn(5L);
+
+        assertThat(contactService.patchContact(5L, Map.of("phone", "987654321"), 4L)).isEqualTo(5L);
+        verify(ownerRevisionRepository).lockNextRevision("dave");
+        verify(ownerRevisionRepository).bump("dave");
+        ArgumentCaptor<ContactChangedEvent> event = ArgumentCaptor.forClass(ContactChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getOwnerUsername()).isEqualTo("dave");
+        verify(contactRepository, never()).findById(any());
+    }
+
+    // 45. exportJsonSnapshot — eksport ponad limit bufora i widok admina -> null (kontroler pisze strumieniowo)
+    @Test
+    void exportSnapshot_nullAboveLimitAndForAdmin() throws Exception {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        Contact c = Contact.builder().id(7L).ownerUsername("alice").firstName("Jan").lastName("N".repeat(100)).email("j@n").phone("123456789").build();
+        when(contactRepository.streamByOwnerUsername("alice")).thenAnswer(inv -> Stream.generate(() -> c).limit(50_000));
+
+        assertThat(contactService.exportJsonSnapshot()).isNull();
+
+        TestSecurityUtils.setAuthentication("admin", "ROLE_ADMIN");
+        assertThat(contactService.exportXmlSnapshot()).isNull();
+        verify(contactRepository, never()).streamAllBy();
+        verify(ownerRevisionRepository, never()).sumRevisions();
+    }
+
+    // 46. getChanges — token sprzed kompaktowania tombstone'ów albo innego użytkownika -> reset
+    @Test
+    void getChanges_staleOrForeignTokenResets() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(ownerRevisionRepository.findById("alice")).thenReturn(Optional.of(new OwnerRevision("alice", 9L, 5L)));
+        when(contactRepository.findPage(eq("alice"), any(), isNull(), anyInt())).thenReturn(List.of());
+
+        assertThat(contactService.getChanges(new SyncToken("alice", 4L, null).encode()).isReset()).isTrue();
+        assertThat(contactService.getChanges(new SyncToken("bob", 8L, null).encode()).isReset()).isTrue();
+        verify(tombstoneRepository, never()).findDeletedIdsSince(any(), anyLong());
+    }
+
+    // 47. getChanges — pełna lista stronami: kolejna strona z kursora w tokenie, rewizja z pierwszej strony
+    @Test
+    void getChanges_resetIsPaged() {
+        TestSecurityUtils.setAuthentication("alice", "ROLE_USER");
+        when(ownerRevisionRepository.findById("alice")).thenReturn(
+                Optional.of(new OwnerRevision("alice", 6L, 0L)), Optional.of(new OwnerRevision("alice", 8L, 0L)));
+        List<Contact> firstRows = new ArrayList<>();
+        for (long id = 1; id <= 1001; id++) {
+            firstRows.add(Contact.builder().id(id).lastNameKey(new byte[]{1}).firstNameKey(new byte[]{2}).emailDomain("x.pl").build());
+        }
+        when(contactRepository.findPage(eq("alice"), any(), isNull(), eq(1001))).thenReturn(firstRows);
+        when(contactRepository.findPage(eq("alice"), any(), notNull(), eq(1001))).thenReturn(List.of(new Contact()));
+
+        var first = contactService.getChanges(null);
+        assertThat(first.isReset()).isTrue();
+        assertThat(first.isMore()).isTrue();
+        assertThat(first.getUpserts()).hasSize(1000);
+
+        var last = contactService.getChanges(first.getToken());
+        assertThat(last.isReset()).isFalse();
+        assertThat(last.isMore()).isFalse();
+        assertThat(SyncToken.decode(last.getToken())).isEqualTo(new SyncToken("alice", 6L, null));
+        ArgumentCaptor<Contact> after = ArgumentCaptor.forClass(Contact.class);
+        verify(contactRepository).findPage(eq("alice"), any(), after.capture(), eq(1001));
+        assertThat(after.getValue().getId()).isEqualTo(1000L);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.contacts.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OwnerContactsCacheTest {
+
+    // 1. lista odczytana przed unieważnieniem (zapis zatwierdzony w trakcie odczytu) nie trafia do cache
+    @Test
+    void get_skipsPutWhenInvalidatedDuringLoad() {
+        OwnerContactsCache cache = new OwnerContactsCache(100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Long> stale = cache.get("alice", () -> {
+            loads.incrementAndGet();
+            cache.onContactChanged(ContactChangedEvent.deleted(2L, "alice"));
+            return List.of(1L, 2L);
+        });
+        assertThat(stale).containsExactly(1L, 2L);
+
+        assertThat(cache.get("alice", () -> {
+            loads.incrementAndGet();
+            return List.of(1L);
+        })).containsExactly(1L);
+        assertThat(cache.get("alice", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        })).containsExactly(1L);
+        assertThat(loads).hasValue(2);
+    }
+}
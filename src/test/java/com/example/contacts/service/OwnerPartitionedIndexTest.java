@@ -0,0 +1,62 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+import com.example.contacts.model.Contact;
+import com.example.contacts.repository.ContactRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OwnerPartitionedIndexTest {
+
+    ContactRepository contactRepository = mock(ContactRepository.class);
+
+    private static Contact contact(long id, String lastName, String phone, long version) {
+        return Contact.builder().id(id).ownerUsername("alice").firstName("Jan").lastName(lastName)
+                .email("jan@x.pl").phone(phone).version(version).build();
+    }
+
+    // 1. zdarzenia starsze niż zastosowana wersja są pomijane; usunięcie jest ostateczne
+    @Test
+    void phoneIndex_ignoresOutOfOrderEvents() {
+        when(contactRepository.findOwnerUsernames()).thenReturn(List.of("alice"));
+        when(contactRepository.findSnapshotsByOwner("alice"))
+                .thenReturn(List.of(new ContactSnapshot(1L, "Jan", "Kowal", "jan@x.pl", "600100200", 2L)));
+        PhoneIndex index = new PhoneIndex(contactRepository);
+        index.rebuild();
+
+        index.onContactChanged(ContactChangedEvent.saved(contact(1L, "Kowal", "511222333", 1L)));
+        assertThat(index.find("alice", "600100200")).containsExactly(1L);
+
+        index.onContactChanged(ContactChangedEvent.patched(1L, "alice", 4L, Map.of("phone", "700700700")));
+        index.onContactChanged(ContactChangedEvent.saved(contact(1L, "Kowal", "511222333", 3L)));
+        assertThat(index.find("alice", "700700700")).containsExactly(1L);
+        assertThat(index.find("alice", "511222333")).isEmpty();
+
+        index.onContactChanged(ContactChangedEvent.deleted(1L, "alice"));
+        index.onContactChanged(ContactChangedEvent.saved(contact(1L, "Kowal", "700700700", 5L)));
+        assertThat(index.find("alice", "700700700")).isEmpty();
+    }
+
+    // 2. PATCH kontaktu, którego SAVED jeszcze nie dotarło -> przeładowanie właściciela; spóźnione SAVED pominięte
+    @Test
+    void searchIndex_patchBeforeSaveReloadsOwner() {
+        when(contactRepository.findOwnerUsernames()).thenReturn(List.of("alice"));
+        when(contactRepository.findSnapshotsByOwner("alice")).thenReturn(
+                List.of(),
+                List.of(new ContactSnapshot(7L, "Jan", "Nowak", "jan@x.pl", "600100200", 1L)));
+        SearchIndex index = new SearchIndex(contactRepository);
+        index.rebuild();
+
+        index.onContactChanged(ContactChangedEvent.patched(7L, "alice", 1L, Map.of("lastName", "Nowak")));
+        index.onContactChanged(ContactChangedEvent.saved(contact(7L, "Kowal", "600100200", 0L)));
+
+        assertThat(index.search("alice", "jan nowak", 10)).extracting(ContactSnapshot::getId).containsExactly(7L);
+        assertThat(index.search("alice", "kowal", 10)).isEmpty();
+        verify(contactRepository, times(2)).findSnapshotsByOwner("alice");
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.contacts.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PhoneTableTest {
+
+    // 1. parse — tylko dokładnie 9 cyfr
+    @Test
+    void parse_acceptsOnlyNineDigits() {
+        assertThat(PhoneTable.parse("600100200")).isEqualTo(600100200);
+        assertThat(PhoneTable.parse("000000001")).isEqualTo(1);
+        assertThat(PhoneTable.parse("999999999")).isEqualTo(999999999);
+        assertThat(PhoneTable.parse("60010020")).isNegative();
+        assertThat(PhoneTable.parse("60010020a")).isNegative();
+        assertThat(PhoneTable.parse(null)).isNegative();
+    }
+
+    // 2. ten sam numer u kilku kontaktów, zmiana numeru i usunięcie po id
+    @Test
+    void putFindAndRemove() {
+        PhoneTable table = new PhoneTable(4);
+        table.put(1L, 600100200);
+        table.put(2L, 600100200);
+        table.put(3L, 511222333);
+
+        assertThat(table.find(600100200)).containsExactlyInAnyOrder(1L, 2L);
+
+        table.put(2L, 511222333);
+        assertThat(table.find(600100200)).containsExactly(1L);
+        assertThat(table.find(511222333)).containsExactlyInAnyOrder(2L, 3L);
+
+        table.remove(3L);
+        table.remove(42L);
+        assertThat(table.find(511222333)).containsExactly(2L);
+        assertThat(table.size()).isEqualTo(2);
+    }
+
+    // 3. losowe operacje z powiększaniem tablicy zgodne z HashMap (sprawdza przesuwanie wstecz przy usuwaniu)
+    @Test
+    void randomOperationsMatchReferenceMap() {
+        PhoneTable table = new PhoneTable(8);
+        Map<Long, Integer> reference = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int step = 0; step < 20_000; step++) {
+            long id = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                table.remove(id);
+                reference.remove(id);
+            } else {
+                int phone = 600_000_000 + random.nextInt(500);
+                table.put(id, phone);
+                reference.put(id, phone);
+            }
+        }
+
+        assertThat(table.size()).isEqualTo(reference.size());
+        for (int phone = 600_000_000; phone < 600_000_500; phone++) {
+            int p = phone;
+            Long[] expected = reference.entrySet().stream()
+                    .filter(e -> e.getValue() == p).map(Map.Entry::getKey).toArray(Long[]::new);
+            assertThat(table.find(phone)).containsExactlyInAnyOrder(Arrays.stream(expected).mapToLong(Long::longValue).toArray());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.ContactSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SearchTableTest {
+
+    private static List<Long> search(SearchTable table, String q) {
+        List<ContactSnapshot> out = new ArrayList<>();
+        table.search(q, 100, out);
+        return out.stream().map(ContactSnapshot::getId).toList();
+    }
+
+    private static SearchTable sample() {
+        SearchTable table = new SearchTable(4);
+        table.put(new ContactSnapshot(1L, "Łukasz", "Żółkiewski", "lukasz.z@firma.pl", "600100200", 0L));
+        table.put(new ContactSnapshot(2L, "Anna Maria", "Kowalska", "anna@poczta.pl", "511222333", 0L));
+        table.put(new ContactSnapshot(3L, "Jan", "Kowal", "jk@firma.pl", "600999888", 0L));
+        return table;
+    }
+
+    // 1. normalizacja: małe litery, bez polskich znaków, separatory -> jedna spacja
+    @Test
+    void normalize_foldsCaseDiacriticsAndSeparators() {
+        assertThat(SearchTable.normalize("ŻÓŁW  Łąka!")).isEqualTo("zolw laka");
+        assertThat(SearchTable.normalize("A.B@x-y.pl")).isEqualTo("a.b@x-y.pl");
+        assertThat(SearchTable.normalize(null)).isEmpty();
+    }
+
+    // 2. podciąg (od 3 znaków) w dowolnym polu, niezależnie od polskich znaków
+    @Test
+    void search_substringAcrossFields() {
+        SearchTable table = sample();
+
+        assertThat(search(table, "kowal")).containsExactly(2L, 3L);
+        assertThat(search(table, "zolk")).containsExactly(1L);
+        assertThat(search(table, "firma.pl")).containsExactly(1L, 3L);
+        assertThat(search(table, "99988")).containsExactly(3L);
+        assertThat(search(table, "a mar")).containsExactly(2L);
+        assertThat(search(table, "xyz")).isEmpty();
+    }
+
+    // 3. 1-2 znaki: tylko prefiksy słów
+    @Test
+    void search_shortQueryMatchesWordPrefixes() {
+        SearchTable table = sample();
+
+        assertThat(search(table, "m")).containsExactly(2L);
+        assertThat(search(table, "ko")).containsExactly(2L, 3L);
+        assertThat(search(table, "ł")).containsExactly(1L);
+    }
+
+    // 4. zmiana, PATCH i usunięcie aktualizują indeks; limit przerywa wyszukiwanie
+    @Test
+    void updatesPatchesRemovesAndLimits() {
+        SearchTable table = sample();
+
+        table.put(new ContactSnapshot(3L, "Jan", "Nowak", "jk@firma.pl", "600999888", 0L));
+        assertThat(search(table, "kowal")).containsExactly(2L);
+        assertThat(search(table, "nowak")).containsExactly(3L);
+
+        table.patch(2L, 1L, Map.of("lastName", "Nowakowska"));
+        assertThat(search(table, "nowak")).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(search(table, "anna")).containsExactly(2L);
+
+        table.remove(3L);
+        assertThat(search(table, "nowak")).containsExactly(2L);
+        assertThat(table.size()).isEqualTo(2);
+
+        List<ContactSnapshot> out = new ArrayList<>();
+        assertThat(table.search("a", 1, out)).isFalse();
+        assertThat(out).hasSize(1);
+    }
+
+    // 5. kompaktowanie po wielu zmianach zachowuje wyniki
+    @Test
+    void compactionKeepsLiveContacts() {
+        SearchTable table = new SearchTable(4);
+        for (long round = 0; round < 5; round++) {
+            for (long id = 0; id < 1000; id++) {
+                table.put(new ContactSnapshot(id, "Imie" + id, "Nazwisko" + round, "e" + id + "@x.pl", "600000000", 0L));
+            }
+        }
+
+        assertThat(table.size()).isEqualTo(1000);
+        assertThat(search(table, "nazwisko4")).hasSize(100);
+        assertThat(search(table, "nazwisko3")).isEmpty();
+        assertThat(search(table, "imie999")).containsExactly(999L);
+    }
+
+    // 6. pełne imię i nazwisko w jednym zapytaniu (imię i nazwisko indeksowane jako jeden tekst)
+    @Test
+    void search_fullNameAcrossFirstAndLastName() {
+        SearchTable table = sample();
+
+        assertThat(search(table, "jan kowal")).containsExactly(3L);
+        assertThat(search(table, "maria kowalska")).containsExactly(2L);
+        assertThat(search(table, "Łukasz Żółk")).containsExactly(1L);
+        assertThat(search(table, "jan nowak")).isEmpty();
+    }
+}
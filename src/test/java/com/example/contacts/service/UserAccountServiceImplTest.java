@@ -0,0 +1,73 @@
+package com.example.contacts.service;
+
+import com.example.contacts.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserAccountServiceImplTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    UserAccountServiceImpl service;
+
+    AutoCloseable mocks;
+
+    @BeforeEach
+    void setup() {
+        mocks = MockitoAnnotations.openMocks(this);
+        service = new UserAccountServiceImpl(userRepository, eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    // 1. zmiana roli zwiększa wersję tokenów i publikuje zdarzenie (cache sprawdzania tokenów)
+    @Test
+    void changeRole_bumpsTokenVersionAndPublishes() {
+        when(userRepository.updateRoleAndRevokeTokens("ola", "ROLE_ADMIN")).thenReturn(1);
+
+        assertThat(service.changeRole("ola", "ROLE_ADMIN")).isTrue();
+
+        verify(eventPublisher).publishEvent(new UserTokensRevokedEvent("ola"));
+    }
+
+    // 2. nieznana rola -> IllegalArgumentException, bez zapisu
+    @Test
+    void changeRole_unknownRoleRejected() {
+        assertThatThrownBy(() -> service.changeRole("ola", "ROLE_ROOT"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(userRepository, eventPublisher);
+    }
+
+    // 3. brak użytkownika -> false, bez zdarzenia
+    @Test
+    void revokeTokens_missingUser() {
+        when(userRepository.incrementTokenVersion(anyString())).thenReturn(0);
+
+        assertThat(service.revokeTokens("nikt")).isFalse();
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    // 4. unieważnienie tokenów istniejącego użytkownika
+    @Test
+    void revokeTokens_bumpsTokenVersionAndPublishes() {
+        when(userRepository.incrementTokenVersion("ola")).thenReturn(1);
+
+        assertThat(service.revokeTokens("ola")).isTrue();
+
+        verify(eventPublisher).publishEvent(new UserTokensRevokedEvent("ola"));
+    }
+}
@@ -2,6 +2,7 @@ package com.example.contacts.service;
 
 import com.example.contacts.model.AppUser;
 import com.example.contacts.repository.UserRepository;
+import com.example.contacts.security.AppUserPrincipal;
 import org.junit.jupiter.api.*;
 import org.mockito.*;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -65,4 +66,14 @@ class UserDetailsServiceImplTest {
         UserDetails ud = service.loadUserByUsername("p");
         assertThat(ud.getPassword()).isEqualTo("pwd");
     }
-}
\ No newline at end of file
+
+    // 5. principal niesie wersję użytkownika (token bez ponownego odczytu)
+    @Test
+    void principalCarriesTokenVersion() {
+        AppUser u = AppUser.builder().username("v").password("p").role("ROLE_USER").tokenVersion(4).build();
+        when(userRepository.findByUsername("v")).thenReturn(Optional.of(u));
+        UserDetails ud = service.loadUserByUsername("v");
+        assertThat(ud).isInstanceOf(AppUserPrincipal.class);
+        assertThat(((AppUserPrincipal) ud).getTokenVersion()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.contacts.service;
+
+import com.example.contacts.dto.BulkProvisioningReport;
+import com.example.contacts.dto.BulkUserResult;
+import com.example.contacts.model.AppUser;
+import com.example.contacts.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserProvisioningServiceImplTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    PasswordEncoder passwordEncoder;
+
+    @Mock
+    EntityManager entityManager;
+
+    UserProvisioningServiceImpl service;
+
+    AutoCloseable mocks;
+
+    @BeforeEach
+    void setup() {
+        mocks = MockitoAnnotations.openMocks(this);
+        service = new UserProvisioningServiceImpl(userRepository, passwordEncoder, entityManager, 2);
+        when(passwordEncoder.encode(anyString())).thenAnswer(inv -> "enc:" + inv.getArgument(0));
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(Set.of());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.shutdown();
+        mocks.close();
+    }
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 1. JSON: nowe konta zapisane z zahashowanym hasłem i domyślną rolą, istniejące pominięte
+    @Test
+    void createsNewAndSkipsExisting() throws Exception {
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(Set.of("ola"));
+        List<AppUser> saved = new ArrayList<>();
+        when(userRepository.saveAll(anyList())).thenAnswer(inv -> {
+            saved.addAll(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+
+        BulkProvisioningReport report = service.provisionFromJson(body("""
+                [{"username":"ola","password":"p1"},
+                 {"username":"jan","password":"p2"},
+                 {"username":"ewa","password":"p3","role":"ROLE_ADMIN"}]
+                """));
+
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getSkipped()).isEqualTo(1);
+        assertThat(report.getResults()).extracting(BulkUserResult::getStatus)
+                .containsExactly("EXISTS", "CREATED", "CREATED");
+        assertThat(saved).extracting(AppUser::getUsername, AppUser::getPassword, AppUser::getRole)
+                .containsExactly(tuple("jan", "enc:p2", "ROLE_USER"), tuple("ewa", "enc:p3", "ROLE_ADMIN"));
+        verify(entityManager).flush();
+        verify(entityManager).clear();
+    }
+
+    // 2. powtórzona nazwa, brak hasła i nieznana rola - pominięte bez zapytań o nie
+    @Test
+    void rejectsDuplicatesAndInvalidRows() throws Exception {
+        BulkProvisioningReport report = service.provisionFromJson(body("""
+                [{"username":"jan","password":"p"},
+                 {"username":"jan","password":"q"},
+                 {"username":"adam","password":""},
+                 {"username":"root","password":"x","role":"ROLE_ROOT"}]
+                """));
+
+        assertThat(report.getResults()).extracting(BulkUserResult::getRow, BulkUserResult::getStatus)
+                .containsExactly(tuple(1L, "CREATED"), tuple(2L, "DUPLICATE"), tuple(3L, "INVALID"), tuple(4L, "INVALID"));
+        verify(userRepository).findExistingUsernames(List.of("jan"));
+        verify(passwordEncoder, times(1)).encode(anyString());
+    }
+
+    // 3. jedno zapytanie o istniejące nazwy na porcję
+    @Test
+    void queriesExistingUsernamesOncePerChunk() throws Exception {
+        service.chunkSize = 2;
+
+        BulkProvisioningReport report = service.provisionFromCsv(body("""
+                username,password
+                a,1
+                b,2
+                c,3
+                d,4
+                e,5
+                """));
+
+        assertThat(report.getCreated()).isEqualTo(5);
+        verify(userRepository, times(3)).findExistingUsernames(anyCollection());
+        verify(userRepository, times(3)).saveAll(anyList());
+        verify(entityManager, times(3)).clear();
+    }
+
+    // 4. CSV: kolejność kolumn z nagłówka, pola w cudzysłowach, puste linie pomijane
+    @Test
+    void parsesCsvHeaderAndQuotedFields() throws Exception {
+        List<AppUser> saved = new ArrayList<>();
+        when(userRepository.saveAll(anyList())).thenAnswer(inv -> {
+            saved.addAll(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+
+        service.provisionFromCsv(body("""
+                Role, Password ,USERNAME
+                ROLE_ADMIN,"pa,ss""word",kasia
+
+                ,plain,marek
+                """));
+
+        assertThat(saved).extracting(AppUser::getUsername, AppUser::getPassword, AppUser::getRole)
+                .containsExactly(tuple("kasia", "enc:pa,ss\"word", "ROLE_ADMIN"), tuple("marek", "enc:plain", "ROLE_USER"));
+    }
+
+    // 5. CSV bez kolumny password -> IllegalArgumentException (400 w kontrolerze)
+    @Test
+    void rejectsCsvWithoutRequiredColumns() {
+        assertThatThrownBy(() -> service.provisionFromCsv(body("username,role\njan,ROLE_USER\n")))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(userRepository);
+    }
+
+    // 6. CSV: pole w cudzysłowach z nową linią (RFC 4180) i BOM przed nagłówkiem
+    @Test
+    void parsesCsvQuotedFieldSpanningLines() throws Exception {
+        List<AppUser> saved = new ArrayList<>();
+        when(userRepository.saveAll(anyList())).thenAnswer(inv -> {
+            saved.addAll(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+
+        service.provisionFromCsv(body("\uFEFFusername,password\r\nola,\"line1\r\nline2\"\r\njan,x\r\n"));
+
+        assertThat(saved).extracting(AppUser::getUsername, AppUser::getPassword)
+                .containsExactly(tuple("ola", "enc:line1\nline2"), tuple("jan", "enc:x"));
+    }
+}